@@ -2,8 +2,12 @@ package spring.project.forum;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableRetry
+@EnableScheduling
 public class ForumApplication {
 
     public static void main(String[] args) {
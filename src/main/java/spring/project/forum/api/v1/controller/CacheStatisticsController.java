@@ -0,0 +1,27 @@
+package spring.project.forum.api.v1.controller;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import spring.project.forum.api.v1.dto.CacheRegionStatisticsDto;
+import spring.project.forum.service.CacheStatistics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api")
+public class CacheStatisticsController {
+
+    private final CacheStatistics cacheStatistics;
+
+    public CacheStatisticsController(CacheStatistics cacheStatistics) {
+        this.cacheStatistics = cacheStatistics;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("admin/cache-statistics")
+    public List<CacheRegionStatisticsDto> getCacheStatistics() {
+        return cacheStatistics.getRegions();
+    }
+}
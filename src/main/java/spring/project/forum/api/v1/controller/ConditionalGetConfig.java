@@ -0,0 +1,45 @@
+package spring.project.forum.api.v1.controller;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Conditional GETs for posts and users. Question details, answers, answer lists and users are tagged with
+ * their version by the controller, so a matching If-None-Match is answered before anything is loaded. Every
+ * other response gets a strong ETag hashed from its body, which saves the transfer but not the work. Responses
+ * are marked no-cache so clients revalidate instead of dropping them.
+ */
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+
+    @Bean
+    FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(new ShallowEtagHeaderFilter() {
+            @Override
+            protected boolean shouldNotFilter(HttpServletRequest request) {
+                String accept = request.getHeader(HttpHeaders.ACCEPT);
+                return !HttpMethod.GET.matches(request.getMethod())
+                        || accept != null && accept.contains(NdjsonWriter.APPLICATION_NDJSON_VALUE);
+            }
+        });
+        registration.addUrlPatterns("/api/questions/*", "/api/answers/*", "/api/users/*");
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        WebContentInterceptor webContentInterceptor = new WebContentInterceptor();
+        webContentInterceptor.addCacheMapping(CacheControl.noCache().cachePrivate(), "/api/questions/**", "/api/answers/**", "/api/users/**");
+        registry.addInterceptor(webContentInterceptor);
+    }
+}
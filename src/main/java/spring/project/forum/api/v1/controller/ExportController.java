@@ -0,0 +1,41 @@
+package spring.project.forum.api.v1.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import spring.project.forum.api.v1.dto.ExportResultDto;
+import spring.project.forum.model.ExportFormat;
+import spring.project.forum.service.ContentExporter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("api")
+public class ExportController {
+
+    private final ContentExporter contentExporter;
+
+    public ExportController(ContentExporter contentExporter) {
+        this.contentExporter = contentExporter;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("admin/export")
+    public void downloadExport(@RequestParam(value = "format", defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"forum-export." + exportFormat.getFileExtension() + "\"");
+        contentExporter.export(exportFormat, response.getOutputStream());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("admin/export")
+    public ExportResultDto exportToFile(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        return contentExporter.exportToFile(ExportFormat.fromParam(format));
+    }
+}
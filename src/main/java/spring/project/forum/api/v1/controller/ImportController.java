@@ -0,0 +1,33 @@
+package spring.project.forum.api.v1.controller;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import spring.project.forum.api.v1.dto.ImportResultDto;
+import spring.project.forum.service.ContentImporter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("api")
+public class ImportController {
+
+    private final ContentImporter contentImporter;
+
+    public ImportController(ContentImporter contentImporter) {
+        this.contentImporter = contentImporter;
+    }
+
+    /**
+     * Streams the NDJSON request body into the forum. Sending the same file under the same name again
+     * resumes after the last committed line.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "admin/import/{name}", consumes = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ImportResultDto importContent(@PathVariable("name") String name, HttpServletRequest request) throws IOException {
+        return contentImporter.importStream(name, request.getInputStream());
+    }
+}
@@ -0,0 +1,37 @@
+package spring.project.forum.api.v1.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes one JSON document per line straight to the response, so a list is sent row by row instead of being
+ * collected and serialized as a whole.
+ */
+class NdjsonWriter {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final ObjectWriter objectWriter;
+    private final OutputStream outputStream;
+
+    NdjsonWriter(ObjectMapper objectMapper, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        this.objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.outputStream = response.getOutputStream();
+    }
+
+    void write(Object row) {
+        try {
+            objectWriter.writeValue(outputStream, row);
+            outputStream.write('\n');
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+}
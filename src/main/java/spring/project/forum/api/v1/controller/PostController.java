@@ -1,19 +1,39 @@
 package spring.project.forum.api.v1.controller;
 
-import org.springframework.data.domain.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import spring.project.forum.api.v1.dto.AnswerDto;
 import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.CursorPageDto;
 import spring.project.forum.api.v1.dto.QuestionDto;
 import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionThreadDto;
+import spring.project.forum.api.v1.dto.ThreadVotesDto;
+import spring.project.forum.api.v1.dto.TitleSuggestionDto;
+import spring.project.forum.api.v1.dto.VoteBatchDto;
+import spring.project.forum.api.v1.dto.VoteBatchResultDto;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
+import spring.project.forum.api.v1.dto.VoteDto;
 import spring.project.forum.model.Answer;
+import spring.project.forum.model.PageCount;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.projection.QuestionSummary;
 import spring.project.forum.service.AnswerService;
 import spring.project.forum.service.QuestionService;
+import spring.project.forum.service.VoteService;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -22,37 +42,69 @@ public class PostController {
 
     private final QuestionService questionService;
     private final AnswerService answerService;
+    private final VoteService voteService;
 
-    public PostController(QuestionService questionService, AnswerService answerService) {
+    private final ObjectMapper objectMapper;
+
+    public PostController(QuestionService questionService, AnswerService answerService, VoteService voteService, ObjectMapper objectMapper) {
         this.questionService = questionService;
         this.answerService = answerService;
+        this.voteService = voteService;
+        this.objectMapper = objectMapper;
     }
 
     @PreAuthorize("permitAll()")
     @GetMapping("questions/{questionId}")
-    public Question getQuestionById(@PathVariable("questionId") Integer id) {
-        return questionService.getById(id);
+    public ResponseEntity<byte[]> getQuestionById(@PathVariable("questionId") Integer id, WebRequest request) {
+        if (request.checkNotModified("question-" + id + "-" + questionService.getVersion(id)))
+            return null;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(questionService.getRenderedById(id));
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping("questions/{questionId}/thread")
+    public QuestionThreadDto getQuestionThread(@PathVariable("questionId") Integer questionId) {
+        return questionService.getThread(questionId);
     }
 
     @PreAuthorize("permitAll()")
     @GetMapping("answers/{answerId}")
-    public Answer getAnswerById(@PathVariable("answerId") Integer id) {
+    public Answer getAnswerById(@PathVariable("answerId") Integer id, WebRequest request) {
+        if (request.checkNotModified("answer-" + id + "-" + answerService.getVersion(id)))
+            return null;
         return answerService.getById(id);
     }
 
     @PreAuthorize("permitAll()")
     @GetMapping("questions")
-    public List<Question> getQuestions() {
+    public List<QuestionSummary> getQuestions() {
         return questionService.getAll();
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public void streamQuestions(HttpServletResponse response) throws IOException {
+        questionService.streamAll(new NdjsonWriter(objectMapper, response)::write);
+    }
+
     @PreAuthorize("permitAll()")
     @GetMapping(value = "questions", params = {"page", "limit", "sort"})
-    public Page<Question> getQuestions(
+    public Slice<QuestionSummary> getQuestions(
             @RequestParam("page") Integer pageNum,
             @RequestParam("limit") Integer pageSize,
-            @RequestParam("sort") String sortBy) {
-        return questionService.getAll(pageNum, pageSize, sortBy);
+            @RequestParam("sort") String sortBy,
+            @RequestParam(value = "count", defaultValue = "exact") String count) {
+        return questionService.getAll(pageNum, pageSize, sortBy, PageCount.fromParam(count));
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions", params = {"after", "limit"})
+    public CursorPageDto<QuestionSummary> getQuestions(
+            @RequestParam("after") String after,
+            @RequestParam("limit") Integer limit) {
+        return questionService.getAll(after, limit);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -83,26 +135,76 @@ public class PostController {
 
     @PreAuthorize("permitAll()")
     @GetMapping(value = "questions/{questionId}/answers", params = {"page", "limit", "sort"})
-    public Page<Answer> getAnswersForQuestion(
+    public Slice<Answer> getAnswersForQuestion(
             @PathVariable("questionId") Integer questionId,
             @RequestParam("page") Integer pageNum,
             @RequestParam("limit") Integer pageSize,
-            @RequestParam("sort") String sortBy) {
-        return answerService.getByQuestion(questionId, pageNum, pageSize, sortBy);
+            @RequestParam("sort") String sortBy,
+            @RequestParam(value = "count", defaultValue = "exact") String count,
+            WebRequest request) {
+        if (request.checkNotModified(answersETag(questionId)))
+            return null;
+        return answerService.getByQuestion(questionId, pageNum, pageSize, sortBy, PageCount.fromParam(count));
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/{questionId}/answers", params = {"after", "limit"})
+    public CursorPageDto<AnswerSummary> getAnswersForQuestion(
+            @PathVariable("questionId") Integer questionId,
+            @RequestParam("after") String after,
+            @RequestParam("limit") Integer limit,
+            WebRequest request) {
+        if (request.checkNotModified(answersETag(questionId)))
+            return null;
+        return answerService.getByQuestion(questionId, after, limit);
     }
 
     @PreAuthorize("permitAll()")
     @GetMapping("questions/{questionId}/answers")
-    public List<Answer> getAnswersForQuestion(@PathVariable("questionId") Integer questionId) {
+    public List<Answer> getAnswersForQuestion(@PathVariable("questionId") Integer questionId, WebRequest request) {
+        if (request.checkNotModified(answersETag(questionId)))
+            return null;
         return answerService.getByQuestion(questionId);
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping("questions/hot")
+    public List<QuestionSummary> getHotQuestions(@RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        return questionService.getHot(limit);
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping("questions/suggest")
+    public List<TitleSuggestionDto> suggestQuestionTitles(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        return questionService.suggestTitles(prefix, limit);
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping("questions/unresolved")
+    public CursorPageDto<QuestionSummary> getUnresolvedQuestions(
+            @RequestParam(value = "author", required = false) String author,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "unanswered", defaultValue = "false") Boolean unansweredOnly,
+            @RequestParam(value = "after", defaultValue = "") String after,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        return questionService.getUnresolved(author, from, to, unansweredOnly, after, limit);
+    }
+
     @PreAuthorize("permitAll()")
     @GetMapping("questions/not-closed")
-    public List<Question> getNotClosedQuestions() {
+    public List<QuestionSummary> getNotClosedQuestions() {
         return questionService.getNotClosed();
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/not-closed", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public void streamNotClosedQuestions(HttpServletResponse response) throws IOException {
+        questionService.streamNotClosed(new NdjsonWriter(objectMapper, response)::write);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("questions/{questionId}/give-answer/admin")
     public Answer giveAnswerAdmin(@PathVariable("questionId") Integer questionId, @Valid @RequestBody AnswerDtoAdmin answerDtoAdmin) {
@@ -163,6 +265,30 @@ public class PostController {
         return answerService.unDownVote(answerId);
     }
 
+    @PreAuthorize("isFullyAuthenticated()")
+    @PutMapping("questions/{questionId}/vote")
+    public VoteCountsDto setQuestionVote(@PathVariable("questionId") Integer questionId, @Valid @RequestBody VoteDto voteDto) {
+        return questionService.setVote(questionId, voteDto.getState());
+    }
+
+    @PreAuthorize("isFullyAuthenticated()")
+    @PutMapping("answers/{answerId}/vote")
+    public VoteCountsDto setAnswerVote(@PathVariable("answerId") Integer answerId, @Valid @RequestBody VoteDto voteDto) {
+        return answerService.setVote(answerId, voteDto.getState());
+    }
+
+    @PreAuthorize("isFullyAuthenticated()")
+    @PostMapping("votes/batch")
+    public List<VoteBatchResultDto> applyVoteBatch(@Valid @RequestBody VoteBatchDto voteBatchDto) {
+        return voteService.applyBatch(voteBatchDto.getVotes());
+    }
+
+    @PreAuthorize("isFullyAuthenticated()")
+    @GetMapping("questions/{questionId}/my-votes")
+    public ThreadVotesDto getMyVotes(@PathVariable("questionId") Integer questionId) {
+        return questionService.getMyVotes(questionId);
+    }
+
     @PreAuthorize("hasRole('ADMIN') or (hasRole('USER') and @customAuthenticationManager.isQuestionOwner(authentication, #questionId))")
     @GetMapping("questions/{questionId}/set-best-answer/{answerId}")
     public Question setBestAnswer(@PathVariable("questionId") Integer questionId, @PathVariable("answerId") Integer answerId) {
@@ -213,13 +339,52 @@ public class PostController {
 
     @PreAuthorize("permitAll()")
     @GetMapping("questions/get-by-author/{username}")
-    public List<Question> getQuestionsByAuthor(@PathVariable("username") String username) {
+    public List<QuestionSummary> getQuestionsByAuthor(@PathVariable("username") String username) {
         return this.questionService.getByAuthor(username);
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/get-by-author/{username}", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public void streamQuestionsByAuthor(@PathVariable("username") String username, HttpServletResponse response) throws IOException {
+        this.questionService.streamByAuthor(username, new NdjsonWriter(objectMapper, response)::write);
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/get-by-author/{username}", params = {"after", "limit"})
+    public CursorPageDto<QuestionSummary> getQuestionsByAuthor(
+            @PathVariable("username") String username,
+            @RequestParam("after") String after,
+            @RequestParam("limit") Integer limit) {
+        return this.questionService.getByAuthor(username, after, limit);
+    }
+
     @PreAuthorize("permitAll()")
     @GetMapping("questions/answered-by/{username}")
-    public List<Question> getQuestionsAnsweredByUser(@PathVariable("username") String username) {
+    public List<QuestionSummary> getQuestionsAnsweredByUser(@PathVariable("username") String username) {
         return this.questionService.getQuestionsAnsweredByUser(username);
     }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/answered-by/{username}", params = {"page", "limit", "sort"})
+    public Slice<QuestionSummary> getQuestionsAnsweredByUser(
+            @PathVariable("username") String username,
+            @RequestParam("page") Integer pageNum,
+            @RequestParam("limit") Integer pageSize,
+            @RequestParam("sort") String sortBy,
+            @RequestParam(value = "count", defaultValue = "exact") String count) {
+        return this.questionService.getQuestionsAnsweredByUser(username, pageNum, pageSize, sortBy, PageCount.fromParam(count));
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "questions/answered-by/{username}", params = {"after", "limit"})
+    public CursorPageDto<QuestionSummary> getQuestionsAnsweredByUser(
+            @PathVariable("username") String username,
+            @RequestParam("after") String after,
+            @RequestParam("limit") Integer limit) {
+        return this.questionService.getQuestionsAnsweredByUser(username, after, limit);
+    }
+
+    private String answersETag(Integer questionId) {
+        return "answers-" + questionId + "-" + answerService.getVersionOfQuestionAnswers(questionId);
+    }
 }
@@ -0,0 +1,40 @@
+package spring.project.forum.api.v1.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import spring.project.forum.api.v1.dto.SearchHitDto;
+import spring.project.forum.service.SearchIndex;
+
+@RestController
+@RequestMapping("api")
+public class SearchController {
+
+    private final SearchIndex searchIndex;
+
+    public SearchController(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @PreAuthorize("permitAll()")
+    @GetMapping("search")
+    public Page<SearchHitDto> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") Integer pageNum,
+            @RequestParam(value = "limit", defaultValue = "20") Integer pageSize) {
+        return searchIndex.search(query, pageNum, pageSize);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("admin/search/reindex")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reindex() {
+        searchIndex.reindex();
+    }
+}
@@ -7,10 +7,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import spring.project.forum.api.v1.dto.PasswordDto;
 import spring.project.forum.api.v1.dto.UserDto;
 import spring.project.forum.api.v1.dto.UserExcludePasswordDto;
+import spring.project.forum.api.v1.dto.UserStatsDto;
 import spring.project.forum.exception.JWTVerificationExceptionHandler;
 import spring.project.forum.model.security.User;
 import spring.project.forum.service.JwtService;
@@ -30,23 +32,42 @@ public class UserController {
     private final UserService userService;
     private final JwtService jwtService;
 
-    public UserController(UserService userService, JwtService jwtService) {
+    private final ObjectMapper objectMapper;
+
+    public UserController(UserService userService, JwtService jwtService, ObjectMapper objectMapper) {
         this.userService = userService;
         this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
     }
 
     @PreAuthorize("permitAll()")
     @GetMapping("users")
-    public List<User> getUsers() {
+    public List<User> getUsers(WebRequest request) {
+        if (request.checkNotModified("users-" + userService.getVersionOfAll()))
+            return null;
         return userService.getAll();
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping(value = "users", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public void streamUsers(HttpServletResponse response) throws IOException {
+        userService.streamAll(new NdjsonWriter(objectMapper, response)::write);
+    }
+
     @PreAuthorize("permitAll()")
     @GetMapping("users/{username}")
-    public User getUser(@PathVariable String username) {
+    public User getUser(@PathVariable String username, WebRequest request) {
+        if (request.checkNotModified("user-" + userService.getVersion(username)))
+            return null;
         return userService.getByUsername(username);
     }
 
+    @PreAuthorize("permitAll()")
+    @GetMapping("users/{username}/stats")
+    public UserStatsDto getUserStats(@PathVariable("username") String username) {
+        return userService.getStats(username);
+    }
+
     @PreAuthorize("permitAll()")
     @GetMapping("users/{username}/check-username-availability")
     public boolean checkUsernameAvailability(@PathVariable("username") String username) {
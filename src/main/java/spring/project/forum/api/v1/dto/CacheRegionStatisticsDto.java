@@ -0,0 +1,29 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheRegionStatisticsDto {
+
+    String region;
+
+    Long hitCount;
+
+    Long missCount;
+
+    Long putCount;
+
+    Long evictionCount;
+
+    Long elementCount;
+
+    Long sizeInBytes;
+
+    Long averageElementSizeInBytes;
+}
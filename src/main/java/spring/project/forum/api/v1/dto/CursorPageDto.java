@@ -0,0 +1,23 @@
+package spring.project.forum.api.v1.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageDto<T> {
+
+    List<T> content;
+
+    String next;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    Long total;
+}
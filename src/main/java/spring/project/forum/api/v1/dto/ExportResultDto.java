@@ -0,0 +1,30 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.ExportFormat;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExportResultDto {
+
+    ExportFormat format;
+
+    String file;
+
+    Map<String, Long> rows;
+
+    Long totalRows;
+
+    Long bytes;
+
+    Long millis;
+
+    Long rowsPerSecond;
+}
@@ -0,0 +1,33 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportResultDto {
+
+    String name;
+
+    Long resumedAfterLine;
+
+    Long lines;
+
+    Integer users;
+
+    Integer questions;
+
+    Integer answers;
+
+    Integer votes;
+
+    Integer rejected;
+
+    List<String> errors;
+}
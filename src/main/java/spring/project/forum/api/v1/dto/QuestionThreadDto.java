@@ -0,0 +1,21 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.projection.QuestionDetail;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuestionThreadDto {
+
+    QuestionDetail question;
+
+    List<AnswerSummary> answers;
+}
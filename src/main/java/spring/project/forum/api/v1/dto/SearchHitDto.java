@@ -0,0 +1,24 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.PostType;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchHitDto {
+
+    PostType type;
+
+    Integer id;
+
+    Integer questionId;
+
+    String title;
+
+    Float score;
+}
@@ -0,0 +1,22 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.VoteState;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ThreadVotesDto {
+
+    Integer questionId;
+
+    VoteState questionVote;
+
+    Map<Integer, VoteState> answerVotes;
+}
@@ -0,0 +1,19 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TitleSuggestionDto {
+
+    Integer id;
+
+    String title;
+
+    Integer score;
+}
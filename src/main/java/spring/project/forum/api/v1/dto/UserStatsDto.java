@@ -0,0 +1,27 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserStatsDto {
+
+    String username;
+
+    Long questionCount;
+
+    Long answerCount;
+
+    Long acceptedAnswerCount;
+
+    Long upVotesReceived;
+
+    Long downVotesReceived;
+
+    Long reputation;
+}
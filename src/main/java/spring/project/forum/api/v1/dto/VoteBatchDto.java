@@ -0,0 +1,22 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoteBatchDto {
+
+    @NotEmpty(message = "At least one vote is mandatory")
+    @Size(max = 200, message = "At most 200 votes can be sent at once")
+    List<@Valid VoteBatchItemDto> votes;
+}
@@ -0,0 +1,26 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.VoteState;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoteBatchItemDto {
+
+    @NotNull(message = "Post type is mandatory")
+    PostType postType;
+
+    @NotNull(message = "Post id is mandatory")
+    Integer postId;
+
+    @NotNull(message = "Vote state is mandatory")
+    VoteState state;
+}
@@ -0,0 +1,31 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.VoteState;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoteBatchResultDto {
+
+    PostType postType;
+
+    Integer postId;
+
+    VoteState state;
+
+    Boolean applied;
+
+    String error;
+
+    Integer upVoteCount;
+
+    Integer downVoteCount;
+
+    Integer score;
+}
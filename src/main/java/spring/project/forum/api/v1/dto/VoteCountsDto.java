@@ -0,0 +1,24 @@
+package spring.project.forum.api.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import spring.project.forum.model.VoteState;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VoteCountsDto {
+
+    Integer postId;
+
+    VoteState state;
+
+    Integer upVoteCount;
+
+    Integer downVoteCount;
+
+    Integer score;
+}
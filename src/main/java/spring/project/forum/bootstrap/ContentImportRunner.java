@@ -0,0 +1,50 @@
+package spring.project.forum.bootstrap;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import spring.project.forum.api.v1.dto.ImportResultDto;
+import spring.project.forum.service.ContentImporter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line mode of the bulk import. Started with --forum.import.file=&lt;path&gt;, the application imports
+ * the file under forum.import.name, the file name by default, and exits. Running it again resumes the import.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ContentImportRunner implements CommandLineRunner {
+
+    private final ContentImporter contentImporter;
+    private final ApplicationContext applicationContext;
+    private final String file;
+    private final String name;
+
+    public ContentImportRunner(ContentImporter contentImporter,
+                               ApplicationContext applicationContext,
+                               @Value("${forum.import.file:}") String file,
+                               @Value("${forum.import.name:}") String name) {
+        this.contentImporter = contentImporter;
+        this.applicationContext = applicationContext;
+        this.file = file;
+        this.name = name;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (file.isBlank())
+            return;
+        Path path = Paths.get(file);
+        ImportResultDto result = contentImporter.importFile(name.isBlank() ? path.getFileName().toString() : name, path);
+        result.getErrors().forEach(error -> log.warn("Rejected {}", error));
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
@@ -3,13 +3,17 @@ package spring.project.forum.bootstrap;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
-import spring.project.forum.model.Answer;
-import spring.project.forum.model.Question;
+import spring.project.forum.model.*;
 import spring.project.forum.model.security.Authority;
 import spring.project.forum.model.security.User;
 import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.AnswerVoteCounterRepository;
+import spring.project.forum.repository.AnswerVoteRepository;
 import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.QuestionVoteCounterRepository;
+import spring.project.forum.repository.QuestionVoteRepository;
 import spring.project.forum.repository.security.UserRepository;
+import spring.project.forum.service.VoteCountCacheEvictor;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -21,13 +25,23 @@ public class H2Bootstrap implements CommandLineRunner {
     private final QuestionRepository questionRepository;
     private final AnswerRepository answerRepository;
     private final UserRepository userRepository;
+    private final QuestionVoteRepository questionVoteRepository;
+    private final AnswerVoteRepository answerVoteRepository;
+    private final QuestionVoteCounterRepository questionVoteCounterRepository;
+    private final AnswerVoteCounterRepository answerVoteCounterRepository;
     private final PasswordEncoder passwordEncoder;
+    private final VoteCountCacheEvictor voteCountCacheEvictor;
 
-    public H2Bootstrap(QuestionRepository questionRepository, AnswerRepository answerRepository, UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public H2Bootstrap(QuestionRepository questionRepository, AnswerRepository answerRepository, UserRepository userRepository, QuestionVoteRepository questionVoteRepository, AnswerVoteRepository answerVoteRepository, QuestionVoteCounterRepository questionVoteCounterRepository, AnswerVoteCounterRepository answerVoteCounterRepository, PasswordEncoder passwordEncoder, VoteCountCacheEvictor voteCountCacheEvictor) {
         this.questionRepository = questionRepository;
         this.answerRepository = answerRepository;
         this.userRepository = userRepository;
+        this.questionVoteRepository = questionVoteRepository;
+        this.answerVoteRepository = answerVoteRepository;
+        this.questionVoteCounterRepository = questionVoteCounterRepository;
+        this.answerVoteCounterRepository = answerVoteCounterRepository;
         this.passwordEncoder = passwordEncoder;
+        this.voteCountCacheEvictor = voteCountCacheEvictor;
     }
 
     @Override
@@ -68,7 +82,6 @@ public class H2Bootstrap implements CommandLineRunner {
                         "What might be the problem? Some kind of permission to folders problem?")
                 .createdAt(LocalDate.now())
                 .author(u1)
-                .upVotes(List.of(u2, u3))
                 .build();
 
         Answer a1 = Answer.builder()
@@ -76,8 +89,6 @@ public class H2Bootstrap implements CommandLineRunner {
                 .createdAt(LocalDate.now())
                 .author(u2)
                 .targetQuestion(q1)
-                .upVotes(List.of(u1))
-                .downVotes(List.of(u3))
                 .build();
 
         Answer a2 = Answer.builder()
@@ -92,8 +103,6 @@ public class H2Bootstrap implements CommandLineRunner {
                 .createdAt(LocalDate.now())
                 .author(u3)
                 .targetQuestion(q1)
-                .upVotes(List.of(u1, u2))
-                .downVotes(List.of(u3))
                 .build();
 
         Answer a3 = Answer.builder()
@@ -101,7 +110,6 @@ public class H2Bootstrap implements CommandLineRunner {
                 .createdAt(LocalDate.now())
                 .author(u1)
                 .targetQuestion(q1)
-                .upVotes(List.of(u1))
                 .build();
 
         q1.setAnswers(List.of(a1, a2, a3));
@@ -218,8 +226,63 @@ public class H2Bootstrap implements CommandLineRunner {
 
         questionRepository.saveAll(List.of(q1, q2, q3, q4));
         answerRepository.saveAll(List.of(a1, a2, a3, a4, a5));
+        questionVoteRepository.saveAll(List.of(
+                questionVote(u2, q1, VoteType.UP),
+                questionVote(u3, q1, VoteType.UP)
+        ));
+        answerVoteRepository.saveAll(List.of(
+                answerVote(u1, a1, VoteType.UP),
+                answerVote(u3, a1, VoteType.DOWN),
+                answerVote(u1, a2, VoteType.UP),
+                answerVote(u2, a2, VoteType.UP),
+                answerVote(u3, a2, VoteType.DOWN),
+                answerVote(u1, a3, VoteType.UP)
+        ));
+        questionVoteCounterRepository.save(questionVoteCounter(q1, 2, 0));
+        answerVoteCounterRepository.saveAll(List.of(
+                answerVoteCounter(a1, 1, 1),
+                answerVoteCounter(a2, 2, 1),
+                answerVoteCounter(a3, 1, 0)
+        ));
+        voteCountCacheEvictor.evictAll();
 //        userRepository.saveAll(List.of(u1, u2, u3));
 
         //questionRepository.saveAll(Set.of(q1, q2));
     }
+
+    private QuestionVote questionVote(User user, Question question, VoteType type) {
+        return QuestionVote.builder()
+                .id(new VoteId(user.getId(), question.getId()))
+                .user(user)
+                .question(question)
+                .type(type)
+                .build();
+    }
+
+    private QuestionVoteCounter questionVoteCounter(Question question, int upVoteCount, int downVoteCount) {
+        return QuestionVoteCounter.builder()
+                .id(new VoteCounterId(question.getId(), 0))
+                .question(question)
+                .upVoteCount(upVoteCount)
+                .downVoteCount(downVoteCount)
+                .build();
+    }
+
+    private AnswerVoteCounter answerVoteCounter(Answer answer, int upVoteCount, int downVoteCount) {
+        return AnswerVoteCounter.builder()
+                .id(new VoteCounterId(answer.getId(), 0))
+                .answer(answer)
+                .upVoteCount(upVoteCount)
+                .downVoteCount(downVoteCount)
+                .build();
+    }
+
+    private AnswerVote answerVote(User user, Answer answer, VoteType type) {
+        return AnswerVote.builder()
+                .id(new VoteId(user.getId(), answer.getId()))
+                .user(user)
+                .answer(answer)
+                .type(type)
+                .build();
+    }
 }
@@ -0,0 +1,16 @@
+package spring.project.forum.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method whose reads may be served by a read replica. Statements it runs outside a read-write
+ * transaction are routed; anything it writes still goes to the primary. Has no effect unless
+ * forum.datasource.replica-urls is set.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromReplica {
+}
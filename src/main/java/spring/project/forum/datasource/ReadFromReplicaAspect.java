@@ -0,0 +1,67 @@
+package spring.project.forum.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Lets the reads of {@link ReadFromReplica} methods go to a replica for as long as the method runs.
+ * <p>
+ * A replica may lag behind the primary, so what it returns must not end up in the second-level cache, where
+ * reads from the primary would find it. Unless the method runs in a read-write transaction, which keeps its reads
+ * on the primary, its entity manager only reads from the cache: the one already bound to the thread, as in a web
+ * request, or one bound for the duration of the method.
+ */
+@Aspect
+public class ReadFromReplicaAspect {
+
+    private static final String CACHE_STORE_MODE = "javax.persistence.cache.storeMode";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ReadFromReplicaAspect(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Around("@annotation(spring.project.forum.datasource.ReadFromReplica)")
+    public Object readFromReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReplicaRoutingDataSource.setReadFromReplica(true);
+        try {
+            if (previous || TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+                return joinPoint.proceed();
+            return proceedWithoutCaching(joinPoint);
+        } finally {
+            ReplicaRoutingDataSource.setReadFromReplica(previous);
+        }
+    }
+
+    private Object proceedWithoutCaching(ProceedingJoinPoint joinPoint) throws Throwable {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(entityManagerFactory);
+        if (holder != null) {
+            EntityManager entityManager = holder.getEntityManager();
+            Object storeMode = entityManager.getProperties().getOrDefault(CACHE_STORE_MODE, CacheStoreMode.USE);
+            entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+            try {
+                return joinPoint.proceed();
+            } finally {
+                entityManager.setProperty(CACHE_STORE_MODE, storeMode);
+            }
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package spring.project.forum.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single datasource with the primary from spring.datasource and a pool per replica in
+ * forum.datasource.replica-urls, which share the primary's credentials. Replicas of a real primary get
+ * their schema through replication; migrate-replicas runs the migrations on each replica instead, for
+ * standalone local databases like in-memory H2.
+ */
+@Configuration
+@ConditionalOnProperty("forum.datasource.replica-urls")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties,
+                                                      @Value("${forum.datasource.replica-urls}") List<String> replicaUrls,
+                                                      @Value("${forum.datasource.replica-connection-timeout-ms:1000}") long connectionTimeoutMs,
+                                                      @Value("${forum.datasource.read-your-writes-ms:0}") long readYourWritesMs,
+                                                      @Value("${forum.datasource.migrate-replicas:false}") boolean migrateReplicas,
+                                                      @Value("${spring.flyway.locations:classpath:db/migration}") String[] migrationLocations) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            if (migrateReplicas)
+                migrate(replica, url, migrationLocations);
+            replicas.put(url, replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, readYourWritesMs);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    ReadFromReplicaAspect readFromReplicaAspect(EntityManagerFactory entityManagerFactory) {
+        return new ReadFromReplicaAspect(entityManagerFactory);
+    }
+
+    private static void migrate(DataSource replica, String url, String[] locations) {
+        String vendor = DatabaseDriver.fromJdbcUrl(url).getId();
+        Flyway.configure()
+                .dataSource(replica)
+                .locations(Arrays.stream(locations).map(location -> location.replace("{vendor}", vendor)).toArray(String[]::new))
+                .load()
+                .migrate();
+    }
+}
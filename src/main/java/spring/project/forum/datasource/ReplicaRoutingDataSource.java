@@ -0,0 +1,176 @@
+package spring.project.forum.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out primary connections, except to reads inside a {@link ReadFromReplica} method that are not part of a
+ * read-write transaction, which get theirs from the replicas in turn. A replica that fails to hand out a
+ * connection is ejected and skipped until the health check finds it working again; with every replica ejected,
+ * reads fall back to the primary. Meant to sit behind a LazyConnectionDataSourceProxy, so the connection is
+ * picked at the first statement of a transaction, when its read-only flag is known.
+ * <p>
+ * With read-your-writes-ms set, a user whose read-write transaction commits reads from the primary for that
+ * long, so their own change shows up even while the replicas catch up.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 1;
+
+    private static final ThreadLocal<Boolean> READ_FROM_REPLICA = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long readYourWritesNanos;
+    private final Map<String, Long> primaryReadsUntil = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long readYourWritesMs) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesMs);
+    }
+
+    /**
+     * Sets whether reads of the current thread may go to a replica and returns the previous setting.
+     */
+    static boolean setReadFromReplica(boolean readFromReplica) {
+        boolean previous = READ_FROM_REPLICA.get() != null;
+        if (readFromReplica)
+            READ_FROM_REPLICA.set(Boolean.TRUE);
+        else
+            READ_FROM_REPLICA.remove();
+        return previous;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection connect(Connector connector) throws SQLException {
+        if (readsFromReplica())
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+                if (!replica.healthy)
+                    continue;
+                try {
+                    return connector.connect(replica.dataSource);
+                } catch (SQLException exc) {
+                    replica.healthy = false;
+                    log.warn("Ejected replica {}: {}", replica.name, exc.getMessage());
+                }
+            }
+        Connection connection = connector.connect(primary);
+        if (readYourWritesNanos > 0 && TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            pinToPrimaryAfterCommit(currentUsername());
+        return connection;
+    }
+
+    private boolean readsFromReplica() {
+        return READ_FROM_REPLICA.get() != null
+                && (!TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+                && !pinnedToPrimary(currentUsername());
+    }
+
+    private boolean pinnedToPrimary(String username) {
+        if (username == null)
+            return false;
+        Long until = primaryReadsUntil.get(username);
+        if (until == null)
+            return false;
+        if (until - System.nanoTime() > 0)
+            return true;
+        primaryReadsUntil.remove(username, until);
+        return false;
+    }
+
+    private void pinToPrimaryAfterCommit(String username) {
+        if (username == null)
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                primaryReadsUntil.put(username, System.nanoTime() + readYourWritesNanos);
+            }
+        });
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken)
+            return null;
+        return authentication.getName();
+    }
+
+    /**
+     * Ejects the replicas that cannot hand out a valid connection and takes back the ones that can again.
+     */
+    @Scheduled(fixedDelayString = "${forum.datasource.replica-health-check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+            } catch (SQLException exc) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy)
+                log.warn(healthy ? "Replica {} is back" : "Ejected replica {}: health check failed", replica.name);
+            replica.healthy = healthy;
+        }
+        long now = System.nanoTime();
+        primaryReadsUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    DataSource getReplica(int index) {
+        return replicas.get(index).dataSource;
+    }
+
+    public void close() throws Exception {
+        for (Replica replica : replicas)
+            if (replica.dataSource instanceof AutoCloseable)
+                ((AutoCloseable) replica.dataSource).close();
+        if (primary instanceof AutoCloseable)
+            ((AutoCloseable) primary).close();
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
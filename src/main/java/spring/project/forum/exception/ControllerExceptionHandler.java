@@ -1,6 +1,7 @@
 package spring.project.forum.exception;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -49,4 +50,9 @@ public class ControllerExceptionHandler {
     @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Voting exception")
     public void handleAlreadyVotedException(VotingException exc) {
     }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @ResponseStatus(value = HttpStatus.CONFLICT, reason = "Concurrent modification")
+    public void handleObjectOptimisticLockingFailureException(ObjectOptimisticLockingFailureException exc) {
+    }
 }
@@ -4,11 +4,12 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import spring.project.forum.model.security.User;
 
 import javax.persistence.*;
 import java.time.LocalDate;
-import java.util.List;
 
 @Entity
 @Getter
@@ -17,9 +18,11 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "answer")
-public class Answer {
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Answer implements VoteCounted {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_seq")
+    @SequenceGenerator(name = "answer_seq", sequenceName = "answer_seq", allocationSize = 50)
     private Integer id;
 
     @Lob
@@ -33,25 +36,31 @@ public class Answer {
     @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
     private User author;
 
-    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "username")
-    @JsonIdentityReference(alwaysAsId = true)
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
-    @JoinTable(
-            name = "user_upvotedanswer",
-            joinColumns = {@JoinColumn(name = "answer_id")},
-            inverseJoinColumns = {@JoinColumn(name = "user_id")}
-    )
-    private List<User> upVotes;
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private Integer version;
 
-    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "username")
-    @JsonIdentityReference(alwaysAsId = true)
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
-    @JoinTable(
-            name = "user_downvotedanswer",
-            joinColumns = {@JoinColumn(name = "answer_id")},
-            inverseJoinColumns = {@JoinColumn(name = "user_id")}
-    )
-    private List<User> downVotes;
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer upVoteCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer downVoteCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer score = 0;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int pendingUpVotes;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int pendingDownVotes;
 
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
     @JsonIdentityReference(alwaysAsId = true)
@@ -60,4 +69,21 @@ public class Answer {
 
     @Builder.Default
     private Boolean isBestAnswer = false;
+
+    public Integer getUpVoteCount() {
+        return upVoteCount + pendingUpVotes;
+    }
+
+    public Integer getDownVoteCount() {
+        return downVoteCount + pendingDownVotes;
+    }
+
+    public Integer getScore() {
+        return score + pendingUpVotes - pendingDownVotes;
+    }
+
+    public void setPendingVotes(int pendingUpVotes, int pendingDownVotes) {
+        this.pendingUpVotes = pendingUpVotes;
+        this.pendingDownVotes = pendingDownVotes;
+    }
 }
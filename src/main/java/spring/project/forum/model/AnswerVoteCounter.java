@@ -0,0 +1,32 @@
+package spring.project.forum.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * One of the sub-counters holding the vote counts of a answer. Votes are spread over the shards by
+ * voter id, so concurrent votes on a hot answer update different rows. Counts are summed on read.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "answer_vote_counter")
+public class AnswerVoteCounter {
+    @EmbeddedId
+    private VoteCounterId id;
+
+    @MapsId("postId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "answer_id")
+    private Answer answer;
+
+    @Column(nullable = false)
+    private Integer upVoteCount;
+
+    @Column(nullable = false)
+    private Integer downVoteCount;
+}
@@ -0,0 +1,31 @@
+package spring.project.forum.model;
+
+import spring.project.forum.exception.CustomValidationException;
+
+public enum ExportFormat {
+    NDJSON("application/gzip", "ndjson.gz"),
+    CSV("application/zip", "zip");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    ExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    public static ExportFormat fromParam(String param) {
+        for (ExportFormat format : values())
+            if (format.name().equalsIgnoreCase(param))
+                return format;
+        throw new CustomValidationException("Unknown export format " + param);
+    }
+}
@@ -0,0 +1,26 @@
+package spring.project.forum.model;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * How far a named bulk import has got: the number of lines of its file that are committed.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "import_checkpoint")
+public class ImportCheckpoint {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private Long line;
+}
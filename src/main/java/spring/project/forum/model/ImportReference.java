@@ -0,0 +1,27 @@
+package spring.project.forum.model;
+
+import lombok.*;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+/**
+ * The post a legacy post id of a bulk import was imported as. Lets a resumed import resolve references to
+ * posts imported before it stopped.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "import_reference")
+public class ImportReference {
+    @EmbeddedId
+    private ImportReferenceId id;
+
+    @Column(nullable = false)
+    private Integer postId;
+}
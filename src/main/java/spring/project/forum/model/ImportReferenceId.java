@@ -0,0 +1,27 @@
+package spring.project.forum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReferenceId implements Serializable {
+    private String importName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 8)
+    private PostType postType;
+
+    private String legacyId;
+}
@@ -0,0 +1,20 @@
+package spring.project.forum.model;
+
+import spring.project.forum.exception.IncorrectPageableException;
+
+/**
+ * How the total of a paged listing is computed: an exact {@code count(*)}, a periodically refreshed
+ * cached total, or not at all (the page only tells whether a next one exists).
+ */
+public enum PageCount {
+    EXACT,
+    APPROXIMATE,
+    NONE;
+
+    public static PageCount fromParam(String param) {
+        for (PageCount pageCount : values())
+            if (pageCount.name().equalsIgnoreCase(param))
+                return pageCount;
+        throw new IncorrectPageableException("Unknown count mode " + param);
+    }
+}
@@ -0,0 +1,6 @@
+package spring.project.forum.model;
+
+public enum PostType {
+    QUESTION,
+    ANSWER
+}
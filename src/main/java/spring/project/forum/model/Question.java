@@ -4,6 +4,9 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Synchronize;
 import spring.project.forum.model.security.User;
 
 import javax.persistence.*;
@@ -18,9 +21,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "question")
-public class Question {
+@Synchronize("answer")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+public class Question implements VoteCounted {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_seq")
+    @SequenceGenerator(name = "question_seq", sequenceName = "question_seq", allocationSize = 50)
     private Integer id;
     private String title;
     @Lob
@@ -36,30 +42,37 @@ public class Question {
     @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
     private User author;
 
-    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "username")
-    @JsonIdentityReference(alwaysAsId = true)
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
-    @JoinTable(
-            name = "user_upvotedquestion",
-            joinColumns = {@JoinColumn(name = "question_id")},
-            inverseJoinColumns = {@JoinColumn(name = "user_id")}
-    )
-    private List<User> upVotes;
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private Integer version;
 
-    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "username")
-    @JsonIdentityReference(alwaysAsId = true)
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.DETACH, CascadeType.PERSIST, CascadeType.REFRESH})
-    @JoinTable(
-            name = "user_downvotedquestion",
-            joinColumns = {@JoinColumn(name = "question_id")},
-            inverseJoinColumns = {@JoinColumn(name = "user_id")}
-    )
-    private List<User> downVotes;
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer upVoteCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer downVoteCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "integer default 0")
+    private Integer score = 0;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int pendingUpVotes;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int pendingDownVotes;
 
 
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
     @JsonIdentityReference(alwaysAsId = true)
     @OneToMany(mappedBy = "targetQuestion", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Answer> answers;
 
 
@@ -67,4 +80,21 @@ public class Question {
     @JsonIdentityReference(alwaysAsId = true)
     @OneToOne
     private Answer bestAnswer;
+
+    public Integer getUpVoteCount() {
+        return upVoteCount + pendingUpVotes;
+    }
+
+    public Integer getDownVoteCount() {
+        return downVoteCount + pendingDownVotes;
+    }
+
+    public Integer getScore() {
+        return score + pendingUpVotes - pendingDownVotes;
+    }
+
+    public void setPendingVotes(int pendingUpVotes, int pendingDownVotes) {
+        this.pendingUpVotes = pendingUpVotes;
+        this.pendingDownVotes = pendingDownVotes;
+    }
 }
@@ -0,0 +1,32 @@
+package spring.project.forum.model;
+
+import lombok.*;
+import spring.project.forum.model.security.User;
+
+import javax.persistence.*;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "question_vote")
+public class QuestionVote {
+    @EmbeddedId
+    private VoteId id;
+
+    @MapsId("userId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @MapsId("postId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "question_id")
+    private Question question;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "vote_type", nullable = false, length = 4)
+    private VoteType type;
+}
@@ -0,0 +1,32 @@
+package spring.project.forum.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * One of the sub-counters holding the vote counts of a question. Votes are spread over the shards by
+ * voter id, so concurrent votes on a hot question update different rows. Counts are summed on read.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "question_vote_counter")
+public class QuestionVoteCounter {
+    @EmbeddedId
+    private VoteCounterId id;
+
+    @MapsId("postId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "question_id")
+    private Question question;
+
+    @Column(nullable = false)
+    private Integer upVoteCount;
+
+    @Column(nullable = false)
+    private Integer downVoteCount;
+}
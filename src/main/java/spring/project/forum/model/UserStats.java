@@ -0,0 +1,45 @@
+package spring.project.forum.model;
+
+import lombok.*;
+import spring.project.forum.model.security.User;
+
+import javax.persistence.*;
+
+/**
+ * One of the sub-records holding the materialized statistics of a user. Like the vote counters, they are
+ * spread over shards, so votes on the posts of a popular author update different rows. Counts are summed on read.
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_stats")
+public class UserStats {
+    @EmbeddedId
+    private UserStatsId id;
+
+    @MapsId("userId")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    @Column(nullable = false)
+    private Integer questionCount;
+
+    @Column(nullable = false)
+    private Integer answerCount;
+
+    @Column(nullable = false)
+    private Integer acceptedAnswerCount;
+
+    @Column(nullable = false)
+    private Integer upVotesReceived;
+
+    @Column(nullable = false)
+    private Integer downVotesReceived;
+
+    @Column(nullable = false)
+    private Integer reputation;
+}
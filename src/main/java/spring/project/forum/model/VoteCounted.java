@@ -0,0 +1,15 @@
+package spring.project.forum.model;
+
+/**
+ * A question or answer read with the vote counts stored in its own row, to which the votes not counted
+ * there yet can be added.
+ */
+public interface VoteCounted {
+    Integer getId();
+
+    Integer getUpVoteCount();
+
+    Integer getDownVoteCount();
+
+    void setPendingVotes(int pendingUpVotes, int pendingDownVotes);
+}
@@ -0,0 +1,15 @@
+package spring.project.forum.model;
+
+public enum VoteState {
+    UP,
+    DOWN,
+    NONE;
+
+    public VoteType toVoteType() {
+        return this == NONE ? null : VoteType.valueOf(name());
+    }
+
+    public static VoteState of(VoteType voteType) {
+        return voteType == null ? NONE : valueOf(voteType.name());
+    }
+}
@@ -0,0 +1,26 @@
+package spring.project.forum.model;
+
+public enum VoteType {
+    UP(1, 0),
+    DOWN(0, 1);
+
+    private final int upDelta;
+    private final int downDelta;
+
+    VoteType(int upDelta, int downDelta) {
+        this.upDelta = upDelta;
+        this.downDelta = downDelta;
+    }
+
+    public int getUpDelta() {
+        return upDelta;
+    }
+
+    public int getDownDelta() {
+        return downDelta;
+    }
+
+    public VoteType opposite() {
+        return this == UP ? DOWN : UP;
+    }
+}
@@ -0,0 +1,58 @@
+package spring.project.forum.model.projection;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import spring.project.forum.model.VoteCounted;
+
+import java.time.LocalDate;
+
+/**
+ * Answer row of the thread view, read together with the author username so that the answers of a
+ * question are loaded with a single query no matter how many there are.
+ */
+@Getter
+public class AnswerSummary implements VoteCounted {
+    private final Integer id;
+    private final String content;
+    private final String author;
+    private final LocalDate createdAt;
+    private final Boolean isBestAnswer;
+    private final Integer upVoteCount;
+    private final Integer downVoteCount;
+    private final Integer score;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingUpVotes;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingDownVotes;
+
+    public AnswerSummary(Integer id, String content, String author, LocalDate createdAt, Boolean isBestAnswer,
+                         Integer upVoteCount, Integer downVoteCount, Integer score) {
+        this.id = id;
+        this.content = content;
+        this.author = author;
+        this.createdAt = createdAt;
+        this.isBestAnswer = isBestAnswer;
+        this.upVoteCount = upVoteCount;
+        this.downVoteCount = downVoteCount;
+        this.score = score;
+    }
+
+    public Integer getUpVoteCount() {
+        return upVoteCount + pendingUpVotes;
+    }
+
+    public Integer getDownVoteCount() {
+        return downVoteCount + pendingDownVotes;
+    }
+
+    public Integer getScore() {
+        return score + pendingUpVotes - pendingDownVotes;
+    }
+
+    public void setPendingVotes(int pendingUpVotes, int pendingDownVotes) {
+        this.pendingUpVotes = pendingUpVotes;
+        this.pendingDownVotes = pendingDownVotes;
+    }
+}
@@ -0,0 +1,16 @@
+package spring.project.forum.model.projection;
+
+/**
+ * What a rendered answer depends on besides the columns its version covers.
+ */
+public interface AnswerVersion {
+    Integer getId();
+
+    Integer getVersion();
+
+    String getAuthor();
+
+    Long getUpVoteCount();
+
+    Long getDownVoteCount();
+}
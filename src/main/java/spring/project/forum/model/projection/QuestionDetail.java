@@ -0,0 +1,61 @@
+package spring.project.forum.model.projection;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import spring.project.forum.model.VoteCounted;
+
+import java.time.LocalDate;
+
+/**
+ * Question part of the thread view, read together with the author username and best answer id in one query.
+ */
+@Getter
+public class QuestionDetail implements VoteCounted {
+    private final Integer id;
+    private final String title;
+    private final String content;
+    private final String author;
+    private final LocalDate createdAt;
+    private final LocalDate closedAt;
+    private final Integer upVoteCount;
+    private final Integer downVoteCount;
+    private final Integer score;
+    private final Integer bestAnswerId;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingUpVotes;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingDownVotes;
+
+    public QuestionDetail(Integer id, String title, String content, String author, LocalDate createdAt, LocalDate closedAt,
+                          Integer upVoteCount, Integer downVoteCount, Integer score, Integer bestAnswerId) {
+        this.id = id;
+        this.title = title;
+        this.content = content;
+        this.author = author;
+        this.createdAt = createdAt;
+        this.closedAt = closedAt;
+        this.upVoteCount = upVoteCount;
+        this.downVoteCount = downVoteCount;
+        this.score = score;
+        this.bestAnswerId = bestAnswerId;
+    }
+
+    public Integer getUpVoteCount() {
+        return upVoteCount + pendingUpVotes;
+    }
+
+    public Integer getDownVoteCount() {
+        return downVoteCount + pendingDownVotes;
+    }
+
+    public Integer getScore() {
+        return score + pendingUpVotes - pendingDownVotes;
+    }
+
+    public void setPendingVotes(int pendingUpVotes, int pendingDownVotes) {
+        this.pendingUpVotes = pendingUpVotes;
+        this.pendingDownVotes = pendingDownVotes;
+    }
+}
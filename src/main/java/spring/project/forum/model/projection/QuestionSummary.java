@@ -0,0 +1,62 @@
+package spring.project.forum.model.projection;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import spring.project.forum.model.VoteCounted;
+
+import java.time.LocalDate;
+
+/**
+ * Row of the question list endpoints, built by a JPQL constructor expression so that a whole page is
+ * read with a single query instead of loading the author, answers and best answer of every question.
+ */
+@Getter
+public class QuestionSummary implements VoteCounted {
+    private final Integer id;
+    private final String title;
+    private final String author;
+    private final LocalDate createdAt;
+    private final LocalDate closedAt;
+    private final Integer upVoteCount;
+    private final Integer downVoteCount;
+    private final Integer score;
+    private final Integer answerCount;
+    private final Boolean hasBestAnswer;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingUpVotes;
+
+    @Getter(AccessLevel.NONE)
+    private int pendingDownVotes;
+
+    public QuestionSummary(Integer id, String title, String author, LocalDate createdAt, LocalDate closedAt,
+                           Integer upVoteCount, Integer downVoteCount, Integer score, Integer answerCount, Boolean hasBestAnswer) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.createdAt = createdAt;
+        this.closedAt = closedAt;
+        this.upVoteCount = upVoteCount;
+        this.downVoteCount = downVoteCount;
+        this.score = score;
+        this.answerCount = answerCount;
+        this.hasBestAnswer = hasBestAnswer;
+    }
+
+    public Integer getUpVoteCount() {
+        return upVoteCount + pendingUpVotes;
+    }
+
+    public Integer getDownVoteCount() {
+        return downVoteCount + pendingDownVotes;
+    }
+
+    public Integer getScore() {
+        return score + pendingUpVotes - pendingDownVotes;
+    }
+
+    public void setPendingVotes(int pendingUpVotes, int pendingDownVotes) {
+        this.pendingUpVotes = pendingUpVotes;
+        this.pendingDownVotes = pendingDownVotes;
+    }
+}
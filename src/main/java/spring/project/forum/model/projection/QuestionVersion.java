@@ -0,0 +1,16 @@
+package spring.project.forum.model.projection;
+
+/**
+ * What a rendered question depends on besides the columns its version covers, one row per answer.
+ */
+public interface QuestionVersion {
+    Integer getVersion();
+
+    String getAuthor();
+
+    Long getUpVoteCount();
+
+    Long getDownVoteCount();
+
+    Integer getAnswerId();
+}
@@ -0,0 +1,9 @@
+package spring.project.forum.model.projection;
+
+public interface UserVersion {
+    Integer getId();
+
+    String getUsername();
+
+    Integer getVersion();
+}
@@ -0,0 +1,11 @@
+package spring.project.forum.model.projection;
+
+public interface VoteCounts {
+    Integer getId();
+
+    Integer getUpVoteCount();
+
+    Integer getDownVoteCount();
+
+    Integer getScore();
+}
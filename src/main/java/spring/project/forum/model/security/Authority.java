@@ -1,6 +1,8 @@
 package spring.project.forum.model.security;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.Set;
@@ -11,15 +13,18 @@ import java.util.Set;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Authority {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "authority_seq")
+    @SequenceGenerator(name = "authority_seq", sequenceName = "authority_seq", allocationSize = 50)
     private Integer id;
 
     private String name;
 
     @ManyToMany(mappedBy = "authorities")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<User> users;
 
     public Authority(String name) {
@@ -2,20 +2,86 @@ package spring.project.forum.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import spring.project.forum.model.Answer;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.projection.AnswerVersion;
+import spring.project.forum.model.projection.VoteCounts;
 import spring.project.forum.model.security.User;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface AnswerRepository extends JpaRepository<Answer, Integer> {
 
+    String VOTE_COUNTS_QUERY = "select a.id as id, a.upVoteCount + coalesce(sum(c.upVoteCount), 0) as upVoteCount, " +
+            "a.downVoteCount + coalesce(sum(c.downVoteCount), 0) as downVoteCount, " +
+            "a.score + coalesce(sum(c.upVoteCount - c.downVoteCount), 0) as score " +
+            "from Answer a left join AnswerVoteCounter c on c.id.postId = a.id";
+
+    String VOTE_COUNTS_GROUP_BY = " group by a.id, a.upVoteCount, a.downVoteCount, a.score";
+
     Page<Answer> findAllByTargetQuestion(Pageable pageable, Question question);
 
     List<Answer> findAllByTargetQuestion(Question question);
 
+    Slice<Answer> findSliceByTargetQuestion(Pageable pageable, Question question);
+
+    @Query("select count(a) from Answer a where a.targetQuestion.id = :questionId")
+    long countByTargetQuestionId(@Param("questionId") Integer questionId);
+
     Page<Answer> findAllByAuthor(Pageable pageable, User user);
 
     List<Answer> findAllByAuthor(User user);
+
+    @Query(VOTE_COUNTS_QUERY + " where a.id = :id" + VOTE_COUNTS_GROUP_BY)
+    Optional<VoteCounts> findVoteCountsById(@Param("id") Integer id);
+
+    @Query(VOTE_COUNTS_QUERY + " where a.id in :ids" + VOTE_COUNTS_GROUP_BY)
+    List<VoteCounts> findVoteCountsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("select a.id as id, a.version as version, u.username as author, " +
+            "a.upVoteCount + (select coalesce(sum(c.upVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as upVoteCount, " +
+            "a.downVoteCount + (select coalesce(sum(c.downVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as downVoteCount " +
+            "from Answer a left join a.author u where a.id = :id")
+    Optional<AnswerVersion> findVersionById(@Param("id") Integer id);
+
+    /**
+     * One row per answer of the question, ordered by id, or a single row of nulls if it has none. Empty if the
+     * question does not exist.
+     */
+    @Query("select a.id as id, a.version as version, u.username as author, " +
+            "a.upVoteCount + (select coalesce(sum(c.upVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as upVoteCount, " +
+            "a.downVoteCount + (select coalesce(sum(c.downVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as downVoteCount " +
+            "from Question q left join q.answers a left join a.author u where q.id = :questionId order by a.id")
+    List<AnswerVersion> findVersionsByTargetQuestionId(@Param("questionId") Integer questionId);
+
+    @Query("select a.id from Answer a where a.id in :ids")
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("select a.id from Answer a where a.targetQuestion.id = :questionId")
+    List<Integer> findIdsByTargetQuestionId(@Param("questionId") Integer questionId);
+
+
+    /**
+     * Counts the shards not folded into the answers yet, like {@link #findVoteCountsByIdIn}, in the same query.
+     */
+    @Query("select new spring.project.forum.model.projection.AnswerSummary(a.id, a.content, u.username, a.createdAt, a.isBestAnswer, " +
+            "cast(a.upVoteCount + (select coalesce(sum(c.upVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as integer), " +
+            "cast(a.downVoteCount + (select coalesce(sum(c.downVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as integer), " +
+            "cast(a.score + (select coalesce(sum(c.upVoteCount - c.downVoteCount), 0) from AnswerVoteCounter c where c.id.postId = a.id) as integer)) " +
+            "from Answer a left join a.author u where a.targetQuestion.id = :questionId " +
+            "order by case when a.isBestAnswer = true then 0 else 1 end, a.createdAt, a.id")
+    List<AnswerSummary> findSummariesByTargetQuestionId(@Param("questionId") Integer questionId);
+
+    @Query("select new spring.project.forum.model.projection.AnswerSummary(a.id, a.content, u.username, a.createdAt, a.isBestAnswer, " +
+            "a.upVoteCount, a.downVoteCount, a.score) from Answer a left join a.author u where a.targetQuestion.id = :questionId " +
+            "and (:createdAt is null or a.createdAt > :createdAt or (a.createdAt = :createdAt and a.id > :afterId)) order by a.createdAt, a.id")
+    List<AnswerSummary> findSummariesByTargetQuestionIdAfter(@Param("questionId") Integer questionId, @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
 }
@@ -0,0 +1,35 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.model.AnswerVoteCounter;
+import spring.project.forum.model.VoteCounterId;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface AnswerVoteCounterRepository extends JpaRepository<AnswerVoteCounter, VoteCounterId> {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update AnswerVoteCounter c set c.upVoteCount = c.upVoteCount + :upDelta, c.downVoteCount = c.downVoteCount + :downDelta " +
+            "where c.id.postId = :answerId and c.id.shard = :shard")
+    int applyVoteDelta(@Param("answerId") Integer answerId, @Param("shard") int shard, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into answer_vote_counter (answer_id, shard, up_vote_count, down_vote_count) select :answerId, :shard, :upDelta, :downDelta from dual " +
+            "where not exists (select 1 from answer_vote_counter where answer_id = :answerId and shard = :shard)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "answer_vote_counter"))
+    int insertCounterIfAbsent(@Param("answerId") Integer answerId, @Param("shard") int shard, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    @Modifying
+    @Query("delete from AnswerVoteCounter c where c.id.postId = :answerId")
+    int deleteAllByAnswerId(@Param("answerId") Integer answerId);
+
+    @Modifying
+    @Query("delete from AnswerVoteCounter c where c.id.postId in (select a.id from Answer a where a.targetQuestion.id = :questionId)")
+    int deleteAllByQuestionId(@Param("questionId") Integer questionId);
+}
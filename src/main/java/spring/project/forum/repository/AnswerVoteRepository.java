@@ -0,0 +1,46 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.model.AnswerVote;
+import spring.project.forum.model.VoteId;
+import spring.project.forum.model.VoteType;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface AnswerVoteRepository extends JpaRepository<AnswerVote, VoteId> {
+
+    List<AnswerVote> findAllByIdUserId(Integer userId);
+
+    @Modifying
+    @Query("update AnswerVote v set v.type = :newType where v.id.userId = :userId and v.id.postId = :answerId and v.type = :oldType")
+    int changeVoteType(@Param("userId") Integer userId, @Param("answerId") Integer answerId, @Param("oldType") VoteType oldType, @Param("newType") VoteType newType);
+
+    @Modifying
+    @Query(value = "insert into answer_vote (user_id, answer_id, vote_type) select :userId, :answerId, :voteType from dual " +
+            "where not exists (select 1 from answer_vote where user_id = :userId and answer_id = :answerId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "answer_vote"))
+    int insertVoteIfAbsent(@Param("userId") Integer userId, @Param("answerId") Integer answerId, @Param("voteType") String voteType);
+
+    @Modifying
+    @Query("delete from AnswerVote v where v.id.userId = :userId and v.id.postId = :answerId and v.type = :type")
+    int deleteVote(@Param("userId") Integer userId, @Param("answerId") Integer answerId, @Param("type") VoteType type);
+
+    @Modifying
+    @Query("delete from AnswerVote v where v.id.postId = :answerId")
+    int deleteAllByAnswerId(@Param("answerId") Integer answerId);
+
+    @Modifying
+    @Query("delete from AnswerVote v where v.id.postId in (select a.id from Answer a where a.targetQuestion.id = :questionId)")
+    int deleteAllByQuestionId(@Param("questionId") Integer questionId);
+
+    @Modifying
+    @Query("delete from AnswerVote v where v.id.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Integer userId);
+}
@@ -0,0 +1,7 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import spring.project.forum.model.ImportCheckpoint;
+
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
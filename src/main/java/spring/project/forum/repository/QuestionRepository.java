@@ -2,21 +2,204 @@ package spring.project.forum.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.projection.QuestionDetail;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.projection.QuestionVersion;
+import spring.project.forum.model.projection.VoteCounts;
 import spring.project.forum.model.security.User;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface QuestionRepository extends JpaRepository<Question, Integer> {
-    Page<Question> findAllByAuthor(Pageable pageable, User user);
 
-    List<Question> findAllByAuthor(User user);
+    String SUMMARY_QUERY = "select new spring.project.forum.model.projection.QuestionSummary(q.id, q.title, a.username, q.createdAt, q.closedAt, " +
+            "q.upVoteCount, q.downVoteCount, q.score, size(q.answers), case when q.bestAnswer is null then false else true end) " +
+            "from Question q left join q.author a";
+
+    String VOTE_COUNTS_QUERY = "select q.id as id, q.upVoteCount + coalesce(sum(c.upVoteCount), 0) as upVoteCount, " +
+            "q.downVoteCount + coalesce(sum(c.downVoteCount), 0) as downVoteCount, " +
+            "q.score + coalesce(sum(c.upVoteCount - c.downVoteCount), 0) as score " +
+            "from Question q left join QuestionVoteCounter c on c.id.postId = q.id";
+
+    String VOTE_COUNTS_GROUP_BY = " group by q.id, q.upVoteCount, q.downVoteCount, q.score";
+
+    @Query(VOTE_COUNTS_QUERY + " where q.id = :id" + VOTE_COUNTS_GROUP_BY)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<VoteCounts> findVoteCountsById(@Param("id") Integer id);
+
+    @Query(VOTE_COUNTS_QUERY + " where q.id in :ids" + VOTE_COUNTS_GROUP_BY)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<VoteCounts> findVoteCountsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * One row per answer, ordered by answer id, or a single row without one. Empty if the question does not exist.
+     */
+    @Query("select q.version as version, u.username as author, " +
+            "q.upVoteCount + (select coalesce(sum(c.upVoteCount), 0) from QuestionVoteCounter c where c.id.postId = q.id) as upVoteCount, " +
+            "q.downVoteCount + (select coalesce(sum(c.downVoteCount), 0) from QuestionVoteCounter c where c.id.postId = q.id) as downVoteCount, " +
+            "a.id as answerId from Question q left join q.author u left join q.answers a where q.id = :id order by a.id")
+    List<QuestionVersion> findVersionsById(@Param("id") Integer id);
+
+    @Query("select q.id from Question q where q.id in :ids")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(SUMMARY_QUERY)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findAllSummaries();
+
+    @Query(SUMMARY_QUERY + " where q.id in :ids")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = SUMMARY_QUERY, countQuery = "select count(q) from Question q")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<QuestionSummary> findAllSummaries(Pageable pageable);
+
+    @Query(SUMMARY_QUERY)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Slice<QuestionSummary> findAllSummarySlice(Pageable pageable);
+
+    @Query(SUMMARY_QUERY)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<QuestionSummary> streamAllSummaries();
+
+    @Query(SUMMARY_QUERY + " where (:createdAt is null or q.createdAt > :createdAt or (q.createdAt = :createdAt and q.id > :afterId)) order by q.createdAt, q.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesAfter(@Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + " where q.author = :author")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesByAuthor(@Param("author") User author);
+
+    @Query(SUMMARY_QUERY + " where q.author = :author")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<QuestionSummary> streamSummariesByAuthor(@Param("author") User author);
+
+    @Query(value = SUMMARY_QUERY + " where q.author = :author", countQuery = "select count(q) from Question q where q.author = :author")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<QuestionSummary> findSummariesByAuthor(@Param("author") User author, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + " where q.author = :author")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Slice<QuestionSummary> findSummarySliceByAuthor(@Param("author") User author, Pageable pageable);
+
+    @Query("select count(q) from Question q where q.author.id = :authorId")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    long countByAuthorId(@Param("authorId") Integer authorId);
+
+    @Query(SUMMARY_QUERY + " where q.author = :author and (:createdAt is null or q.createdAt > :createdAt or (q.createdAt = :createdAt and q.id > :afterId)) order by q.createdAt, q.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesByAuthorAfter(@Param("author") User author, @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + " where q.bestAnswer is null")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesByBestAnswerIsNull();
+
+    @Query(value = SUMMARY_QUERY + " where q.bestAnswer is null", countQuery = "select count(q) from Question q where q.bestAnswer is null")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<QuestionSummary> findSummariesByBestAnswerIsNull(Pageable pageable);
+
+    @Query(SUMMARY_QUERY + " where q.bestAnswer is null")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Slice<QuestionSummary> findSummarySliceByBestAnswerIsNull(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    long countByBestAnswerIsNull();
+
+    @Query(SUMMARY_QUERY + " where q.closedAt is null")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesByClosedAtIsNull();
+
+    @Query(SUMMARY_QUERY + " where q.closedAt is null")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<QuestionSummary> streamSummariesByClosedAtIsNull();
+
+    @Query(SUMMARY_QUERY + " where q.id in (select answer.targetQuestion.id from Answer answer where answer.author = :author)")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesAnsweredBy(@Param("author") User author);
+
+    @Query(value = SUMMARY_QUERY + " where q.id in (select answer.targetQuestion.id from Answer answer where answer.author = :author)",
+            countQuery = "select count(distinct answer.targetQuestion.id) from Answer answer where answer.author = :author")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Page<QuestionSummary> findSummariesAnsweredBy(@Param("author") User author, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + " where q.id in (select answer.targetQuestion.id from Answer answer where answer.author = :author)")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Slice<QuestionSummary> findSummarySliceAnsweredBy(@Param("author") User author, Pageable pageable);
+
+    @Query("select count(distinct answer.targetQuestion.id) from Answer answer where answer.author.id = :authorId")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    long countAnsweredByAuthorId(@Param("authorId") Integer authorId);
+
+    @Query(SUMMARY_QUERY + " where q.id in (select answer.targetQuestion.id from Answer answer where answer.author = :author) " +
+            "and (:createdAt is null or q.createdAt > :createdAt or (q.createdAt = :createdAt and q.id > :afterId)) order by q.createdAt, q.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findSummariesAnsweredByAfter(@Param("author") User author, @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    String UNRESOLVED_FILTER = " where q.closedAt is null and q.bestAnswer is null " +
+            "and (:from is null or q.createdAt >= :from) and (:to is null or q.createdAt <= :to)";
+
+    String BY_AUTHOR_ID = " and q.author.id = :authorId";
+
+    String UNANSWERED = " and not exists (select answer.id from Answer answer where answer.targetQuestion = q)";
+
+    String UNRESOLVED_PAGE = " and (:createdAt is null or q.createdAt > :createdAt or (q.createdAt = :createdAt and q.id > :afterId)) order by q.createdAt, q.id";
+
+    @Query(SUMMARY_QUERY + UNRESOLVED_FILTER + UNRESOLVED_PAGE)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findUnresolvedSummariesAfter(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                       @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + UNRESOLVED_FILTER + BY_AUTHOR_ID + UNRESOLVED_PAGE)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findUnresolvedSummariesByAuthorIdAfter(@Param("authorId") Integer authorId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                                 @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + UNRESOLVED_FILTER + UNANSWERED + UNRESOLVED_PAGE)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findUnansweredSummariesAfter(@Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                       @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query(SUMMARY_QUERY + UNRESOLVED_FILTER + BY_AUTHOR_ID + UNANSWERED + UNRESOLVED_PAGE)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<QuestionSummary> findUnansweredSummariesByAuthorIdAfter(@Param("authorId") Integer authorId, @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                                 @Param("createdAt") LocalDate createdAt, @Param("afterId") Integer afterId, Pageable pageable);
+
+    @Query("select count(q) from Question q" + UNRESOLVED_FILTER)
+    long countUnresolved(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    List<Question> findAllByBestAnswerIsNull();
+    @Query("select count(q) from Question q" + UNRESOLVED_FILTER + BY_AUTHOR_ID)
+    long countUnresolvedByAuthorId(@Param("authorId") Integer authorId, @Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    Page<Question> findAllByBestAnswerIsNull(Pageable pageable);
+    @Query("select count(q) from Question q" + UNRESOLVED_FILTER + UNANSWERED)
+    long countUnanswered(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
-    List<Question> findAllByClosedAtIsNull();
+    @Query("select count(q) from Question q" + UNRESOLVED_FILTER + BY_AUTHOR_ID + UNANSWERED)
+    long countUnansweredByAuthorId(@Param("authorId") Integer authorId, @Param("from") LocalDate from, @Param("to") LocalDate to);
 
+    /**
+     * Counts the shards not folded into the question yet, like {@link #findVoteCountsById}, in the same query.
+     */
+    @Query("select new spring.project.forum.model.projection.QuestionDetail(q.id, q.title, q.content, a.username, q.createdAt, q.closedAt, " +
+            "cast(q.upVoteCount + (select coalesce(sum(c.upVoteCount), 0) from QuestionVoteCounter c where c.id.postId = q.id) as integer), " +
+            "cast(q.downVoteCount + (select coalesce(sum(c.downVoteCount), 0) from QuestionVoteCounter c where c.id.postId = q.id) as integer), " +
+            "cast(q.score + (select coalesce(sum(c.upVoteCount - c.downVoteCount), 0) from QuestionVoteCounter c where c.id.postId = q.id) as integer), b.id) " +
+            "from Question q left join q.author a left join q.bestAnswer b where q.id = :questionId")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<QuestionDetail> findDetailById(@Param("questionId") Integer questionId);
 }
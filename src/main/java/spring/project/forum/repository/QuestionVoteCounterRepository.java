@@ -0,0 +1,31 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.model.QuestionVoteCounter;
+import spring.project.forum.model.VoteCounterId;
+
+import javax.persistence.QueryHint;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface QuestionVoteCounterRepository extends JpaRepository<QuestionVoteCounter, VoteCounterId> {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update QuestionVoteCounter c set c.upVoteCount = c.upVoteCount + :upDelta, c.downVoteCount = c.downVoteCount + :downDelta " +
+            "where c.id.postId = :questionId and c.id.shard = :shard")
+    int applyVoteDelta(@Param("questionId") Integer questionId, @Param("shard") int shard, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into question_vote_counter (question_id, shard, up_vote_count, down_vote_count) select :questionId, :shard, :upDelta, :downDelta from dual " +
+            "where not exists (select 1 from question_vote_counter where question_id = :questionId and shard = :shard)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "question_vote_counter"))
+    int insertCounterIfAbsent(@Param("questionId") Integer questionId, @Param("shard") int shard, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+    @Modifying
+    @Query("delete from QuestionVoteCounter c where c.id.postId = :questionId")
+    int deleteAllByQuestionId(@Param("questionId") Integer questionId);
+}
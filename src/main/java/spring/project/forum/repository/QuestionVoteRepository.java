@@ -0,0 +1,42 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.model.QuestionVote;
+import spring.project.forum.model.VoteId;
+import spring.project.forum.model.VoteType;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface QuestionVoteRepository extends JpaRepository<QuestionVote, VoteId> {
+
+    List<QuestionVote> findAllByIdUserId(Integer userId);
+
+    @Modifying
+    @Query("update QuestionVote v set v.type = :newType where v.id.userId = :userId and v.id.postId = :questionId and v.type = :oldType")
+    int changeVoteType(@Param("userId") Integer userId, @Param("questionId") Integer questionId, @Param("oldType") VoteType oldType, @Param("newType") VoteType newType);
+
+    @Modifying
+    @Query(value = "insert into question_vote (user_id, question_id, vote_type) select :userId, :questionId, :voteType from dual " +
+            "where not exists (select 1 from question_vote where user_id = :userId and question_id = :questionId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "question_vote"))
+    int insertVoteIfAbsent(@Param("userId") Integer userId, @Param("questionId") Integer questionId, @Param("voteType") String voteType);
+
+    @Modifying
+    @Query("delete from QuestionVote v where v.id.userId = :userId and v.id.postId = :questionId and v.type = :type")
+    int deleteVote(@Param("userId") Integer userId, @Param("questionId") Integer questionId, @Param("type") VoteType type);
+
+    @Modifying
+    @Query("delete from QuestionVote v where v.id.postId = :questionId")
+    int deleteAllByQuestionId(@Param("questionId") Integer questionId);
+
+    @Modifying
+    @Query("delete from QuestionVote v where v.id.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Integer userId);
+}
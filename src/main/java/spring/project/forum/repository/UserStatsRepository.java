@@ -0,0 +1,43 @@
+package spring.project.forum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.api.v1.dto.UserStatsDto;
+import spring.project.forum.model.UserStats;
+import spring.project.forum.model.UserStatsId;
+
+import javax.persistence.QueryHint;
+import java.util.Optional;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+public interface UserStatsRepository extends JpaRepository<UserStats, UserStatsId> {
+
+    @Modifying
+    @Query("update UserStats s set s.questionCount = s.questionCount + :questions, s.answerCount = s.answerCount + :answers, " +
+            "s.acceptedAnswerCount = s.acceptedAnswerCount + :acceptedAnswers, s.upVotesReceived = s.upVotesReceived + :upVotes, " +
+            "s.downVotesReceived = s.downVotesReceived + :downVotes, s.reputation = s.reputation + :reputation " +
+            "where s.id.userId = :userId and s.id.shard = :shard")
+    int applyDelta(@Param("userId") Integer userId, @Param("shard") int shard, @Param("questions") int questions, @Param("answers") int answers,
+                   @Param("acceptedAnswers") int acceptedAnswers, @Param("upVotes") int upVotes, @Param("downVotes") int downVotes, @Param("reputation") int reputation);
+
+    @Modifying
+    @Query(value = "insert into user_stats (user_id, shard, question_count, answer_count, accepted_answer_count, up_votes_received, down_votes_received, reputation) " +
+            "select :userId, :shard, :questions, :answers, :acceptedAnswers, :upVotes, :downVotes, :reputation from dual " +
+            "where not exists (select 1 from user_stats where user_id = :userId and shard = :shard)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "user_stats"))
+    int insertStatsIfAbsent(@Param("userId") Integer userId, @Param("shard") int shard, @Param("questions") int questions, @Param("answers") int answers,
+                            @Param("acceptedAnswers") int acceptedAnswers, @Param("upVotes") int upVotes, @Param("downVotes") int downVotes, @Param("reputation") int reputation);
+
+    @Query("select new spring.project.forum.api.v1.dto.UserStatsDto(u.username, coalesce(sum(s.questionCount), 0), coalesce(sum(s.answerCount), 0), " +
+            "coalesce(sum(s.acceptedAnswerCount), 0), coalesce(sum(s.upVotesReceived), 0), coalesce(sum(s.downVotesReceived), 0), coalesce(sum(s.reputation), 0)) " +
+            "from User u left join UserStats s on s.id.userId = u.id where u.username = :username group by u.id, u.username")
+    Optional<UserStatsDto> findStatsByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("delete from UserStats s where s.id.userId = :userId")
+    int deleteAllByUserId(@Param("userId") Integer userId);
+}
@@ -1,12 +1,33 @@
 package spring.project.forum.repository.security;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import spring.project.forum.model.projection.UserVersion;
 import spring.project.forum.model.security.User;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<User> findByUsername(String username);
 
     boolean existsByUsername(String username);
+
+    @Query("select u.id as id, u.username as username, u.version as version from User u where u.username = :username")
+    Optional<UserVersion> findVersionByUsername(@Param("username") String username);
+
+    @Query("select u.id as id, u.username as username, u.version as version from User u order by u.id")
+    List<UserVersion> findAllVersions();
+
+    @Query("select u from User u")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<User> streamAll();
 }
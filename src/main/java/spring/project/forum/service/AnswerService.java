@@ -1,9 +1,16 @@
 package spring.project.forum.service;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import spring.project.forum.api.v1.dto.AnswerDto;
 import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.CursorPageDto;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
 import spring.project.forum.model.Answer;
+import spring.project.forum.model.PageCount;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.security.User;
 
 import java.util.List;
 
@@ -32,9 +39,19 @@ public interface AnswerService {
 
     Answer unDownVote(Integer answerId);
 
+    VoteCountsDto setVote(Integer answerId, VoteState state);
+
+    void applyVote(Integer answerId, User voter, VoteState state);
+
+    String getVersion(Integer answerId);
+
+    String getVersionOfQuestionAnswers(Integer questionId);
+
     List<Answer> getByQuestion(Integer questionId);
 
-    Page<Answer> getByQuestion(Integer questionId, Integer pageNum, Integer pageSize, String sortBy);
+    Slice<Answer> getByQuestion(Integer questionId, Integer pageNum, Integer pageSize, String sortBy, PageCount count);
+
+    CursorPageDto<AnswerSummary> getByQuestion(Integer questionId, String after, Integer limit);
 
     List<Answer> getByAuthor(String username);
 
@@ -1,23 +1,40 @@
 package spring.project.forum.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import spring.project.forum.api.v1.dto.AnswerDto;
 import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.CursorPageDto;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
 import spring.project.forum.api.v1.mapper.AnswerMapper;
+import spring.project.forum.datasource.ReadFromReplica;
+import spring.project.forum.exception.CustomValidationException;
 import spring.project.forum.exception.IncorrectPageableException;
 import spring.project.forum.exception.ResourceNotFoundException;
 import spring.project.forum.exception.VotingException;
 import spring.project.forum.model.Answer;
+import spring.project.forum.model.PageCount;
+import spring.project.forum.model.PostType;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteCounted;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.VoteType;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.projection.VoteCounts;
 import spring.project.forum.model.security.User;
 import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.AnswerVoteRepository;
 import spring.project.forum.repository.QuestionRepository;
 import spring.project.forum.repository.security.UserRepository;
 
@@ -25,6 +42,7 @@ import javax.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -33,25 +51,47 @@ public class AnswerServiceImpl implements AnswerService {
     private final AnswerRepository answerRepository;
     private final QuestionRepository questionRepository;
     private final UserRepository userRepository;
+    private final AnswerVoteRepository answerVoteRepository;
     private final AnswerMapper answerMapper;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+    private final VoterIndex voterIndex;
+    private final VoteCounters voteCounters;
+    private final ApproximateCounts approximateCounts;
+    private final QuestionVersions questionVersions;
+    private final HotQuestions hotQuestions;
+    private final SearchIndex searchIndex;
+    private final UserStatsCounters userStatsCounters;
+    private final CurrentVoteCounts currentVoteCounts;
 
-    public AnswerServiceImpl(AnswerRepository answerRepository, QuestionRepository questionRepository, UserRepository userRepository, AnswerMapper answerMapper) {
+    public AnswerServiceImpl(AnswerRepository answerRepository, QuestionRepository questionRepository, UserRepository userRepository, AnswerVoteRepository answerVoteRepository, AnswerMapper answerMapper, VoteWriteBehindBuffer voteWriteBehindBuffer, VoterIndex voterIndex, VoteCounters voteCounters, ApproximateCounts approximateCounts, QuestionVersions questionVersions, HotQuestions hotQuestions, SearchIndex searchIndex, UserStatsCounters userStatsCounters, CurrentVoteCounts currentVoteCounts) {
         this.answerRepository = answerRepository;
         this.questionRepository = questionRepository;
         this.userRepository = userRepository;
+        this.answerVoteRepository = answerVoteRepository;
         this.answerMapper = answerMapper;
+        this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+        this.voterIndex = voterIndex;
+        this.voteCounters = voteCounters;
+        this.approximateCounts = approximateCounts;
+        this.questionVersions = questionVersions;
+        this.hotQuestions = hotQuestions;
+        this.searchIndex = searchIndex;
+        this.userStatsCounters = userStatsCounters;
+        this.currentVoteCounts = currentVoteCounts;
     }
 
     @Override
+    @ReadFromReplica
     public List<Answer> getAll() {
-        return answerRepository.findAll();
+        return withCurrentVotes(answerRepository.findAll());
     }
 
     @Override
+    @ReadFromReplica
     public Page<Answer> getAll(Integer pageNum, Integer pageSize, String sortBy) {
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return answerRepository.findAll(pageable);
+            return withCurrentVotes(answerRepository.findAll(pageable));
         } catch (PropertyReferenceException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
@@ -59,13 +99,15 @@ public class AnswerServiceImpl implements AnswerService {
 
     @Override
     public Answer getById(Integer answerId) {
-        return answerRepository.findById(answerId).orElseThrow(
+        Answer answer = answerRepository.findById(answerId).orElseThrow(
                 () -> new ResourceNotFoundException("answer with id " + answerId + " not found")
         );
+        return currentVoteCounts.merge(PostType.ANSWER, answer);
     }
 
     @Override
     @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public void deleteById(Integer answerId) {
         Answer answer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("answer with id " + answerId + "not found"));
         if (answer.getIsBestAnswer()) {
@@ -73,18 +115,27 @@ public class AnswerServiceImpl implements AnswerService {
             targetQuestion.setBestAnswer(null);
             questionRepository.save(targetQuestion);
         }
+        voterIndex.removePost(PostType.ANSWER, answerId);
+        userStatsCounters.removePosts(PostType.ANSWER, List.of(answerId));
+        answerVoteRepository.deleteAllByAnswerId(answerId);
+        voteCounters.removeAnswer(answerId);
         answerRepository.deleteById(answerId);
+        hotQuestions.addAnswers(answer.getTargetQuestion().getId(), -1);
+        searchIndex.removeAnswer(answerId);
     }
 
     @Override
     @Transactional
     public Answer createAnswerForQuestionAdmin(Integer questionId, AnswerDtoAdmin answerDtoAdmin) {
         String authorUsername = answerDtoAdmin.getAuthor();
-        Question targetQuestion = questionRepository.getById(questionId);
         Answer newAnswer = answerMapper.answerDtoAdminToAnswer(answerDtoAdmin);
-        newAnswer.setTargetQuestion(targetQuestion);
+        newAnswer.setTargetQuestion(checkTargetQuestion(questionId, questionRepository.findById(questionId), newAnswer));
         newAnswer.setAuthor(userRepository.findByUsername(authorUsername).get());
-        return answerRepository.save(newAnswer);
+        hotQuestions.addAnswers(questionId, 1);
+        Answer savedAnswer = answerRepository.save(newAnswer);
+        searchIndex.indexAnswer(savedAnswer.getId(), questionId, savedAnswer.getContent());
+        userStatsCounters.addAnswer(savedAnswer.getAuthor().getId(), savedAnswer.getId(), 1);
+        return savedAnswer;
     }
 
     @Override
@@ -97,109 +148,218 @@ public class AnswerServiceImpl implements AnswerService {
         newAnswer.setTargetQuestion(targetQuestion);
         newAnswer.setCreatedAt(LocalDate.now());
         author.getGivenAnswers().add(newAnswer);
-        return answerRepository.save(newAnswer);
+        hotQuestions.addAnswers(questionId, 1);
+        Answer savedAnswer = answerRepository.save(newAnswer);
+        searchIndex.indexAnswer(savedAnswer.getId(), questionId, savedAnswer.getContent());
+        userStatsCounters.addAnswer(savedAnswer.getAuthor().getId(), savedAnswer.getId(), 1);
+        return savedAnswer;
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer updateAnswerAdmin(Integer answerId, AnswerDtoAdmin answerDtoAdmin) {
         Answer updatedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
         updatedAnswer.setContent(answerDtoAdmin.getContent());
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         updatedAnswer.setCreatedAt(answerDtoAdmin.getCreatedAt() == null ? null : LocalDate.parse(answerDtoAdmin.getCreatedAt(), formatter));
+        Integer oldAuthorId = updatedAnswer.getAuthor() == null ? null : updatedAnswer.getAuthor().getId();
         updatedAnswer.setAuthor(userRepository.findByUsername(answerDtoAdmin.getAuthor()).get());
-        return answerRepository.save(updatedAnswer);
+        userStatsCounters.moveAuthor(PostType.ANSWER, answerId, oldAuthorId, updatedAnswer.getAuthor().getId());
+        searchIndex.indexAnswer(answerId, updatedAnswer.getTargetQuestion().getId(), updatedAnswer.getContent());
+        return currentVoteCounts.merge(PostType.ANSWER, answerRepository.save(updatedAnswer));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer updateAnswer(Integer answerId, AnswerDto answerDto) {
         Answer updatedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
         updatedAnswer.setContent(answerDto.getContent());
-        return answerRepository.save(updatedAnswer);
+        searchIndex.indexAnswer(answerId, updatedAnswer.getTargetQuestion().getId(), updatedAnswer.getContent());
+        return currentVoteCounts.merge(PostType.ANSWER, answerRepository.save(updatedAnswer));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer upVote(Integer answerId) {
-        Answer upVotedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
-        User upVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (upVotedAnswer.getUpVotes().contains(upVoter))
-            throw new VotingException("User " + upVoter.getUsername() + " already upvoted answer id " + upVotedAnswer.getId());
-        if (upVotedAnswer.getDownVotes().contains(upVoter)) {
-            upVoter.getDownVotedAnswers().remove(upVotedAnswer);
-            upVotedAnswer.getDownVotes().remove(upVoter);
-        }
-        upVoter.getUpVotedAnswers().add(upVotedAnswer);
-        upVotedAnswer.getUpVotes().add(upVoter);
-        return answerRepository.save(upVotedAnswer);
+        return vote(answerId, VoteType.UP);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer downVote(Integer answerId) {
-        Answer downVotedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
-        User downVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (downVotedAnswer.getDownVotes().contains(downVoter))
-            throw new VotingException("User " + downVoter.getUsername() + " already downvoted answer id " + downVotedAnswer.getId());
-        if (downVotedAnswer.getUpVotes().contains(downVoter)) {
-            downVoter.getUpVotedAnswers().remove(downVotedAnswer);
-            downVotedAnswer.getUpVotes().remove(downVoter);
-        }
-        downVoter.getDownVotedAnswers().add(downVotedAnswer);
-        downVotedAnswer.getDownVotes().add(downVoter);
-        return answerRepository.save(downVotedAnswer);
+        return vote(answerId, VoteType.DOWN);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer unUpVote(Integer answerId) {
-        Answer upVotedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
-        User upVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (!upVotedAnswer.getUpVotes().contains(upVoter))
-            throw new VotingException("User " + upVoter.getUsername() + " haven't upvoted answer id " + upVotedAnswer.getId());
-        upVoter.getUpVotedAnswers().remove(upVotedAnswer);
-        upVotedAnswer.getUpVotes().remove(upVoter);
-        return answerRepository.save(upVotedAnswer);
+        return unVote(answerId, VoteType.UP);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Answer unDownVote(Integer answerId) {
-        Answer downVotedAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
-        User downVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (!downVotedAnswer.getDownVotes().contains(downVoter))
-            throw new VotingException("User " + downVoter.getUsername() + " haven't downvoted answer id " + downVotedAnswer.getId());
-        downVoter.getDownVotedAnswers().remove(downVotedAnswer);
-        downVotedAnswer.getDownVotes().remove(downVoter);
-        return answerRepository.save(downVotedAnswer);
+        return unVote(answerId, VoteType.DOWN);
+    }
+
+    @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
+    public VoteCountsDto setVote(Integer answerId, VoteState state) {
+        if (!answerRepository.existsById(answerId))
+            throw new ResourceNotFoundException("Answer with id " + answerId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        applyVote(answerId, voter, state);
+        VoteCounts voteCounts = answerRepository.findVoteCountsById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
+        int[] pending = voteWriteBehindBuffer.pendingCounts(PostType.ANSWER, answerId);
+        return VoteCountsDto.builder()
+                .postId(answerId)
+                .state(state)
+                .upVoteCount(voteCounts.getUpVoteCount() + pending[0])
+                .downVoteCount(voteCounts.getDownVoteCount() + pending[1])
+                .score(voteCounts.getScore() + pending[0] - pending[1])
+                .build();
+    }
+
+    @Override
+    public void applyVote(Integer answerId, User voter, VoteState state) {
+        if (voteWriteBehindBuffer.isEnabled())
+            voteWriteBehindBuffer.setVote(PostType.ANSWER, answerId, voter, state.toVoteType());
+        else if (state == VoteState.NONE)
+            removeVote(voter.getId(), answerId);
+        else
+            putVote(voter.getId(), answerId, state.toVoteType());
+        voterIndex.record(PostType.ANSWER, answerId, voter.getId(), state.toVoteType());
+    }
+
+    private boolean putVote(Integer userId, Integer answerId, VoteType voteType) {
+        VoteType oppositeType = voteType.opposite();
+        if (answerVoteRepository.changeVoteType(userId, answerId, oppositeType, voteType) == 1)
+            voteCounters.add(PostType.ANSWER, answerId, userId, voteType.getUpDelta() - oppositeType.getUpDelta(), voteType.getDownDelta() - oppositeType.getDownDelta());
+        else if (answerVoteRepository.insertVoteIfAbsent(userId, answerId, voteType.name()) == 1)
+            voteCounters.add(PostType.ANSWER, answerId, userId, voteType.getUpDelta(), voteType.getDownDelta());
+        else
+            return false;
+        return true;
+    }
+
+    private void removeVote(Integer userId, Integer answerId) {
+        for (VoteType voteType : VoteType.values())
+            if (answerVoteRepository.deleteVote(userId, answerId, voteType) == 1) {
+                voteCounters.add(PostType.ANSWER, answerId, userId, -voteType.getUpDelta(), -voteType.getDownDelta());
+                return;
+            }
+    }
+
+    private Answer vote(Integer answerId, VoteType voteType) {
+        if (!answerRepository.existsById(answerId))
+            throw new ResourceNotFoundException("Answer with id " + answerId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        if (voteWriteBehindBuffer.isEnabled()) {
+            voteWriteBehindBuffer.vote(PostType.ANSWER, answerId, voter, voteType);
+            voterIndex.record(PostType.ANSWER, answerId, voter.getId(), voteType);
+            return getById(answerId);
+        }
+        if (!putVote(voter.getId(), answerId, voteType))
+            throw new VotingException("User " + voter.getUsername() + " already " + voteType.name().toLowerCase() + "voted answer id " + answerId);
+        voterIndex.record(PostType.ANSWER, answerId, voter.getId(), voteType);
+        return getById(answerId);
+    }
+
+    private Answer unVote(Integer answerId, VoteType voteType) {
+        if (!answerRepository.existsById(answerId))
+            throw new ResourceNotFoundException("Answer with id " + answerId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        if (voteWriteBehindBuffer.isEnabled()) {
+            voteWriteBehindBuffer.unVote(PostType.ANSWER, answerId, voter, voteType);
+            voterIndex.record(PostType.ANSWER, answerId, voter.getId(), null);
+            return getById(answerId);
+        }
+        if (answerVoteRepository.deleteVote(voter.getId(), answerId, voteType) == 0)
+            throw new VotingException("User " + voter.getUsername() + " haven't " + voteType.name().toLowerCase() + "voted answer id " + answerId);
+        voteCounters.add(PostType.ANSWER, answerId, voter.getId(), -voteType.getUpDelta(), -voteType.getDownDelta());
+        voterIndex.record(PostType.ANSWER, answerId, voter.getId(), null);
+        return getById(answerId);
+    }
+
+    @Override
+    public String getVersion(Integer answerId) {
+        return questionVersions.currentAnswer(answerId);
+    }
+
+    @Override
+    public String getVersionOfQuestionAnswers(Integer questionId) {
+        return questionVersions.currentAnswers(questionId);
     }
 
     @Override
     public List<Answer> getByQuestion(Integer questionId) {
         Question foundQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
-        return answerRepository.findAllByTargetQuestion(foundQuestion);
+        return withCurrentVotes(answerRepository.findAllByTargetQuestion(foundQuestion));
     }
 
     @Override
-    public Page<Answer> getByQuestion(Integer questionId, Integer pageNum, Integer pageSize, String sortBy) {
+    public Slice<Answer> getByQuestion(Integer questionId, Integer pageNum, Integer pageSize, String sortBy, PageCount count) {
         Question foundQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return answerRepository.findAllByTargetQuestion(pageable, foundQuestion);
+            if (count == PageCount.NONE)
+                return withCurrentVotes(answerRepository.findSliceByTargetQuestion(pageable, foundQuestion));
+            if (count == PageCount.APPROXIMATE)
+                return withCurrentVotes(approximateCounts.page(answerRepository.findSliceByTargetQuestion(pageable, foundQuestion),
+                        "answers:question:" + questionId, () -> answerRepository.countByTargetQuestionId(questionId)));
+            return withCurrentVotes(answerRepository.findAllByTargetQuestion(pageable, foundQuestion));
         } catch (PropertyReferenceException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
     }
 
     @Override
+    public CursorPageDto<AnswerSummary> getByQuestion(Integer questionId, String after, Integer limit) {
+        if (!questionRepository.existsById(questionId))
+            throw new ResourceNotFoundException("Question with id " + questionId + " not found");
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<AnswerSummary> answers = answerRepository.findSummariesByTargetQuestionIdAfter(questionId, cursor.getCreatedAt(), cursor.getId(), KeysetCursor.pageable(limit));
+        return KeysetCursor.page(withCurrentVotes(answers), limit, AnswerSummary::getCreatedAt, AnswerSummary::getId);
+    }
+
+    @Override
+    @ReadFromReplica
     public List<Answer> getByAuthor(String username) {
         User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
-        return answerRepository.findAllByAuthor(foundUser);
+        return withCurrentVotes(answerRepository.findAllByAuthor(foundUser));
     }
 
     @Override
+    @ReadFromReplica
     public Page<Answer> getByAuthor(String username, Integer pageNum, Integer pageSize, String sortBy) {
         User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return answerRepository.findAllByAuthor(pageable, foundUser);
+            return withCurrentVotes(answerRepository.findAllByAuthor(pageable, foundUser));
         } catch (PropertyReferenceException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
     }
+
+    private <T extends Iterable<? extends VoteCounted>> T withCurrentVotes(T answers) {
+        return currentVoteCounts.mergeAll(PostType.ANSWER, answers);
+    }
+
+    /**
+     * Checks an answer that comes with its own creation date, from an admin or an import, against the question
+     * it is given to: the question has to exist and the answer cannot be dated before it.
+     */
+    static Question checkTargetQuestion(Integer questionId, Optional<Question> targetQuestion, Answer answer) {
+        Question question = targetQuestion.orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
+        if (answer.getCreatedAt() != null && question.getCreatedAt() != null && answer.getCreatedAt().isBefore(question.getCreatedAt()))
+            throw new CustomValidationException("Answer creation date cannot be before the creation date of its question");
+        return question;
+    }
 }
@@ -0,0 +1,90 @@
+package spring.project.forum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Cached row counts for listings that show a total but can live with it being slightly stale.
+ * A count is computed the first time it is asked for and recomputed on every refresh; counts nobody
+ * asked for since the previous refresh are dropped. At most max-entries counts are kept, least recently
+ * used evicted first, so keys should come from a bounded set such as a listing and an author, never
+ * from free-form filters.
+ */
+@Component
+public class ApproximateCounts {
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, CachedCount> counts;
+
+    public ApproximateCounts(@Value("${forum.pagination.approximate-count.max-entries:1000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.counts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+                return size() > ApproximateCounts.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Turns a slice into a page whose total is the cached count, raised if needed so that it never
+     * contradicts the rows and the next-page flag the slice has just read.
+     */
+    public <T> Page<T> page(Slice<T> slice, String key, LongSupplier counter) {
+        long seen = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), Math.max(get(key, counter), seen));
+    }
+
+    public long get(String key, LongSupplier counter) {
+        CachedCount cachedCount;
+        synchronized (counts) {
+            cachedCount = counts.get(key);
+        }
+        if (cachedCount == null) {
+            CachedCount counted = new CachedCount(counter);
+            synchronized (counts) {
+                cachedCount = counts.putIfAbsent(key, counted);
+            }
+            if (cachedCount == null)
+                cachedCount = counted;
+        }
+        cachedCount.accessed = true;
+        return cachedCount.value;
+    }
+
+    @Scheduled(fixedDelayString = "${forum.pagination.approximate-count.refresh-interval-ms:60000}")
+    public void refresh() {
+        List<CachedCount> accessed;
+        synchronized (counts) {
+            counts.values().removeIf(cachedCount -> !cachedCount.accessed);
+            accessed = new ArrayList<>(counts.values());
+        }
+        accessed.forEach(CachedCount::refresh);
+    }
+
+    private static class CachedCount {
+        private final LongSupplier counter;
+        private volatile long value;
+        private volatile boolean accessed;
+
+        private CachedCount(LongSupplier counter) {
+            this.counter = counter;
+            this.value = counter.getAsLong();
+        }
+
+        private void refresh() {
+            accessed = false;
+            value = counter.getAsLong();
+        }
+    }
+}
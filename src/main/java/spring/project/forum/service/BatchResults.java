@@ -0,0 +1,22 @@
+package spring.project.forum.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the entries of a JDBC batch that changed no row, for the update, insert if absent, update again
+ * sequence the counter tables are written with.
+ */
+final class BatchResults {
+
+    private BatchResults() {
+    }
+
+    static List<Object[]> unapplied(List<Object[]> args, int[] results) {
+        List<Object[]> unapplied = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++)
+            if (results[i] == 0)
+                unapplied.add(args.get(i));
+        return unapplied;
+    }
+}
@@ -0,0 +1,79 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import spring.project.forum.api.v1.dto.CacheRegionStatisticsDto;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Hit, miss and put counts of every second-level cache region as counted by Hibernate, together with
+ * the eviction count the cache provider publishes through its JCache statistics MBean. The rendered response
+ * caches and the title suggestion index report their own counters and memory use.
+ */
+@Slf4j
+@Component
+public class CacheStatistics {
+
+    private final SessionFactory sessionFactory;
+    private final List<RenderedResponseCache> renderedResponseCaches;
+    private final TitleSuggestions titleSuggestions;
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public CacheStatistics(SessionFactory sessionFactory, List<RenderedResponseCache> renderedResponseCaches, TitleSuggestions titleSuggestions) {
+        this.sessionFactory = sessionFactory;
+        this.renderedResponseCaches = renderedResponseCaches;
+        this.titleSuggestions = titleSuggestions;
+    }
+
+    public List<CacheRegionStatisticsDto> getRegions() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Set<String> regionNames = new TreeSet<>(Arrays.asList(statistics.getSecondLevelCacheRegionNames()));
+        regionNames.add(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+        List<CacheRegionStatisticsDto> regions = new ArrayList<>(regionNames.size());
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null)
+                region = statistics.getQueryRegionStatistics(regionName);
+            if (region == null)
+                continue;
+            regions.add(CacheRegionStatisticsDto.builder()
+                    .region(regionName)
+                    .hitCount(region.getHitCount())
+                    .missCount(region.getMissCount())
+                    .putCount(region.getPutCount())
+                    .evictionCount(evictionCount(regionName))
+                    .elementCount(region.getElementCountInMemory() < 0 ? null : region.getElementCountInMemory())
+                    .build());
+        }
+        renderedResponseCaches.forEach(cache -> regions.add(cache.getStatistics()));
+        regions.add(titleSuggestions.getStatistics());
+        return regions;
+    }
+
+    private Long evictionCount(String regionName) {
+        try {
+            Set<ObjectName> names = mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,Cache=" + ObjectName.quote(regionName) + ",*"), null);
+            if (names.isEmpty())
+                names = mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,Cache=" + regionName + ",*"), null);
+            if (names.isEmpty())
+                return null;
+            return (Long) mBeanServer.getAttribute(names.iterator().next(), "CacheEvictions");
+        } catch (JMException exc) {
+            log.warn("Could not read eviction count of cache region {}", regionName, exc);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.ExportResultDto;
+import spring.project.forum.model.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Dumps users, questions, answers and votes. NDJSON goes into one gzip stream with a record per line, typed like
+ * the records of the bulk import; CSV goes into a zip with one file per table. Password hashes are left out.
+ * <p>
+ * All tables are read inside one read-only repeatable-read transaction, so the dump is a consistent snapshot
+ * even while the forum keeps changing. Rows are streamed through forward-only cursors with a fixed fetch size
+ * straight into the compressed output, so memory use does not grow with the forum.
+ */
+@Slf4j
+@Component
+public class ContentExporter {
+
+    private static final int FETCH_SIZE = 500;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final List<ExportedTable> TABLES = List.of(
+            new ExportedTable("users", "user",
+                    "select u.id, u.username, u.enabled from user u order by u.id",
+                    "id", "username", "enabled"),
+            new ExportedTable("questions", "question",
+                    "select q.id, q.title, q.content, a.username, q.created_at, q.closed_at, q.best_answer_id " +
+                            "from question q left join user a on a.id = q.author_id order by q.id",
+                    "id", "title", "content", "author", "createdAt", "closedAt", "bestAnswer"),
+            new ExportedTable("answers", "answer",
+                    "select a.id, a.target_question_id, a.content, u.username, a.created_at, a.is_best_answer " +
+                            "from answer a left join user u on u.id = a.author_id order by a.id",
+                    "id", "question", "content", "author", "createdAt", "best"),
+            new ExportedTable("question_votes", "vote",
+                    "select u.username, v.question_id, v.vote_type from question_vote v join user u on u.id = v.user_id",
+                    "user", "question", "vote"),
+            new ExportedTable("answer_votes", "vote",
+                    "select u.username, v.answer_id, v.vote_type from answer_vote v join user u on u.id = v.user_id",
+                    "user", "answer", "vote"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate snapshotTransaction;
+    private final String exportDir;
+
+    public ContentExporter(JdbcTemplate jdbcTemplate,
+                           ObjectMapper objectMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${forum.export.dir:data/exports}") String exportDir) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.exportDir = exportDir;
+    }
+
+    /**
+     * Writes the dump to a new file in export-dir.
+     */
+    public ExportResultDto exportToFile(ExportFormat format) {
+        Path file = Paths.get(exportDir, "forum-export-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "." + format.getFileExtension());
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream output = Files.newOutputStream(file)) {
+                ExportResultDto result = export(format, output);
+                result.setFile(file.toString());
+                return result;
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    /**
+     * Writes the dump to the given stream, which is left open.
+     */
+    public ExportResultDto export(ExportFormat format, OutputStream output) {
+        CountingOutputStream counted = new CountingOutputStream(output);
+        Map<String, Long> rows = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        snapshotTransaction.executeWithoutResult(status -> {
+            try {
+                if (format == ExportFormat.NDJSON)
+                    writeNdjson(counted, rows);
+                else
+                    writeCsv(counted, rows);
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        });
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long totalRows = rows.values().stream().mapToLong(Long::longValue).sum();
+        ExportResultDto result = ExportResultDto.builder()
+                .format(format)
+                .rows(rows)
+                .totalRows(totalRows)
+                .bytes(counted.count)
+                .millis(millis)
+                .rowsPerSecond(totalRows * 1000 / Math.max(millis, 1))
+                .build();
+        log.info("Exported {} rows as {} in {} ms ({} rows/s, {} bytes): {}",
+                totalRows, format, millis, result.getRowsPerSecond(), counted.count, rows);
+        return result;
+    }
+
+    private void writeNdjson(OutputStream output, Map<String, Long> rows) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output, 1 << 16);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(gzip)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .setRootValueSeparator(null);
+        for (ExportedTable table : TABLES)
+            rows.put(table.name, stream(table, resultSet -> {
+                generator.writeStartObject();
+                generator.writeStringField("type", table.recordType);
+                for (int i = 0; i < table.fields.length; i++) {
+                    generator.writeFieldName(table.fields[i]);
+                    generator.writeObject(value(resultSet, i + 1));
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }));
+        generator.flush();
+        gzip.finish();
+    }
+
+    private void writeCsv(OutputStream output, Map<String, Long> rows) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(output);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 1 << 16);
+        for (ExportedTable table : TABLES) {
+            zip.putNextEntry(new ZipEntry(table.name + ".csv"));
+            writer.write(String.join(",", table.fields));
+            writer.write("\r\n");
+            rows.put(table.name, stream(table, resultSet -> {
+                for (int i = 0; i < table.fields.length; i++) {
+                    if (i > 0)
+                        writer.write(',');
+                    writer.write(csv(value(resultSet, i + 1)));
+                }
+                writer.write("\r\n");
+            }));
+            writer.flush();
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    private long stream(ExportedTable table, RowWriter rowWriter) {
+        long[] count = {0};
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(table.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            try {
+                rowWriter.write(resultSet);
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    private static Object value(ResultSet resultSet, int column) throws SQLException {
+        Object value = resultSet.getObject(column);
+        if (value instanceof Clob)
+            return resultSet.getString(column);
+        if (value instanceof Date)
+            return ((Date) value).toLocalDate().toString();
+        return value;
+    }
+
+    private static String csv(Object value) {
+        if (value == null)
+            return "";
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0)
+            return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet resultSet) throws SQLException, IOException;
+    }
+
+    private static class ExportedTable {
+        private final String name;
+        private final String recordType;
+        private final String sql;
+        private final String[] fields;
+
+        private ExportedTable(String name, String recordType, String sql, String... fields) {
+            this.name = name;
+            this.recordType = recordType;
+            this.sql = sql;
+            this.fields = fields;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
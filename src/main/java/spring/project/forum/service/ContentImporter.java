@@ -0,0 +1,479 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.ImportResultDto;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.UserDto;
+import spring.project.forum.api.v1.mapper.AnswerMapper;
+import spring.project.forum.api.v1.mapper.QuestionMapper;
+import spring.project.forum.api.v1.mapper.UserMapper;
+import spring.project.forum.exception.CustomValidationException;
+import spring.project.forum.exception.ResourceNotFoundException;
+import spring.project.forum.model.Answer;
+import spring.project.forum.model.ImportCheckpoint;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteType;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.ImportCheckpointRepository;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.time.DateTimeException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Imports users, questions, answers and votes of another forum from NDJSON, one record per line:
+ * <pre>
+ * {"type":"user","username":"alice","password":"secret"}
+ * {"type":"question","id":"q1","title":"...","content":"...","createdAt":"2019-05-01","closedAt":null,"author":"alice"}
+ * {"type":"answer","id":"a1","question":"q1","content":"...","createdAt":"2019-05-02","author":"bob","best":true}
+ * {"type":"vote","user":"bob","question":"q1","vote":"UP"}
+ * </pre>
+ * The ids are the legacy ids of the posts, used only to resolve the references of later lines; a record may
+ * only refer to posts and users on earlier lines or already in the forum. Records are checked with the rules
+ * of the admin create endpoints and rejected lines are reported and skipped.
+ * <p>
+ * Lines are written in transactions of chunk-size lines with JDBC batching, each also saving how far the
+ * import got. Running an import again under the same name resumes after the last committed line. Authors
+ * are resolved from a map of all usernames loaded once, legacy ids from the references saved with every chunk.
+ * Search, hot questions, user statistics and vote counters follow every chunk; title suggestions are rebuilt
+ * when the import ends.
+ */
+@Slf4j
+@Component
+public class ContentImporter {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+    private final ImportCheckpointRepository importCheckpointRepository;
+    private final UserMapper userMapper;
+    private final QuestionMapper questionMapper;
+    private final AnswerMapper answerMapper;
+    private final HotQuestions hotQuestions;
+    private final SearchIndex searchIndex;
+    private final TitleSuggestions titleSuggestions;
+    private final UserStatsCounters userStatsCounters;
+    private final VoteCounters voteCounters;
+    private final VoterIndex voterIndex;
+    private final VoteCountCacheEvictor voteCountCacheEvictor;
+    private final int chunkSize;
+
+    public ContentImporter(ObjectMapper objectMapper,
+                           Validator validator,
+                           TransactionTemplate transactionTemplate,
+                           JdbcTemplate jdbcTemplate,
+                           UserRepository userRepository,
+                           QuestionRepository questionRepository,
+                           AnswerRepository answerRepository,
+                           ImportCheckpointRepository importCheckpointRepository,
+                           UserMapper userMapper,
+                           QuestionMapper questionMapper,
+                           AnswerMapper answerMapper,
+                           HotQuestions hotQuestions,
+                           SearchIndex searchIndex,
+                           TitleSuggestions titleSuggestions,
+                           UserStatsCounters userStatsCounters,
+                           VoteCounters voteCounters,
+                           VoterIndex voterIndex,
+                           VoteCountCacheEvictor voteCountCacheEvictor,
+                           @Value("${forum.import.chunk-size:1000}") int chunkSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.importCheckpointRepository = importCheckpointRepository;
+        this.userMapper = userMapper;
+        this.questionMapper = questionMapper;
+        this.answerMapper = answerMapper;
+        this.hotQuestions = hotQuestions;
+        this.searchIndex = searchIndex;
+        this.titleSuggestions = titleSuggestions;
+        this.userStatsCounters = userStatsCounters;
+        this.voteCounters = voteCounters;
+        this.voterIndex = voterIndex;
+        this.voteCountCacheEvictor = voteCountCacheEvictor;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportResultDto importFile(String name, Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            return importStream(name, input);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    public synchronized ImportResultDto importStream(String name, InputStream input) {
+        if (name == null || name.isBlank() || name.length() > 255)
+            throw new CustomValidationException("Import name must be 1-255 characters long");
+        long resumedAfter = importCheckpointRepository.findById(name).map(ImportCheckpoint::getLine).orElse(0L);
+        Progress progress = new Progress(name, loadUserIds(), loadReferences(name));
+        long start = System.nanoTime();
+        long lineNumber = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (++lineNumber <= resumedAfter)
+                    continue;
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(progress, chunk, lineNumber);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty())
+                writeChunk(progress, chunk, lineNumber);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        } finally {
+            if (progress.questions > 0)
+                titleSuggestions.rebuild();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Import {} read {} lines after line {} in {} s: {} users, {} questions, {} answers, {} votes, {} rejected",
+                name, lineNumber - resumedAfter, resumedAfter, String.format("%.1f", seconds),
+                progress.users, progress.questions, progress.answers, progress.votes, progress.rejected);
+        return ImportResultDto.builder()
+                .name(name)
+                .resumedAfterLine(resumedAfter)
+                .lines(lineNumber)
+                .users(progress.users)
+                .questions(progress.questions)
+                .answers(progress.answers)
+                .votes(progress.votes)
+                .rejected(progress.rejected)
+                .errors(progress.errors)
+                .build();
+    }
+
+    private void writeChunk(Progress progress, List<String> lines, long lastLine) {
+        Chunk chunk = new Chunk(progress);
+        transactionTemplate.executeWithoutResult(status -> {
+            long lineNumber = lastLine - lines.size();
+            for (String line : lines) {
+                lineNumber++;
+                if (line.isBlank())
+                    continue;
+                try {
+                    importRecord(chunk, objectMapper.readTree(line));
+                } catch (JsonProcessingException exc) {
+                    chunk.reject(lineNumber, "Malformed JSON: " + exc.getOriginalMessage());
+                } catch (CustomValidationException | ResourceNotFoundException | DateTimeException | IllegalArgumentException exc) {
+                    chunk.reject(lineNumber, exc.getMessage());
+                }
+            }
+            questionRepository.flush();
+            writeVotes(chunk, PostType.QUESTION);
+            writeVotes(chunk, PostType.ANSWER);
+            writeReferences(progress.name, chunk);
+            userStatsCounters.addPosts(chunk.postsByAuthor);
+            importCheckpointRepository.save(new ImportCheckpoint(progress.name, lastLine));
+        });
+        chunk.votedPosts.forEach(voteCountCacheEvictor::evictAfterJdbcWrite);
+        progress.absorb(chunk);
+    }
+
+    private void importRecord(Chunk chunk, JsonNode record) throws JsonProcessingException {
+        String type = record.path("type").asText();
+        switch (type) {
+            case "user":
+                importUser(chunk, record);
+                break;
+            case "question":
+                importQuestion(chunk, record);
+                break;
+            case "answer":
+                importAnswer(chunk, record);
+                break;
+            case "vote":
+                importVote(chunk, record);
+                break;
+            default:
+                throw new CustomValidationException("Unknown record type '" + type + "'");
+        }
+    }
+
+    private void importUser(Chunk chunk, JsonNode record) throws JsonProcessingException {
+        UserDto userDto = validated(objectMapper.treeToValue(record, UserDto.class));
+        if (chunk.userId(userDto.getUsername()) != null)
+            throw new CustomValidationException("User with username " + userDto.getUsername() + " already exists");
+        User user = userRepository.save(userMapper.userDtoToUser(userDto));
+        chunk.userIds.put(user.getUsername(), user.getId());
+        chunk.users++;
+    }
+
+    private void importQuestion(Chunk chunk, JsonNode record) throws JsonProcessingException {
+        QuestionDtoAdmin questionDtoAdmin = validated(objectMapper.treeToValue(record, QuestionDtoAdmin.class));
+        String legacyId = legacyId(chunk, record, PostType.QUESTION);
+        Question question = questionMapper.questionDtoAdminToQuestion(questionDtoAdmin);
+        QuestionServiceImpl.checkClosingDate(question);
+        Integer authorId = requiredUserId(chunk, questionDtoAdmin.getAuthor());
+        question.setAuthor(userRepository.getById(authorId));
+        questionRepository.save(question);
+        chunk.reference(PostType.QUESTION, legacyId, question.getId());
+        chunk.addPosts(authorId, 1, 0, 0);
+        chunk.questions++;
+        hotQuestions.track(question.getId(), question.getCreatedAt(), question.getClosedAt());
+        searchIndex.indexQuestion(question.getId(), question.getTitle(), question.getContent());
+    }
+
+    private void importAnswer(Chunk chunk, JsonNode record) throws JsonProcessingException {
+        AnswerDtoAdmin answerDtoAdmin = validated(objectMapper.treeToValue(record, AnswerDtoAdmin.class));
+        String legacyId = legacyId(chunk, record, PostType.ANSWER);
+        Integer questionId = requiredPostId(chunk, PostType.QUESTION, record.path("question").asText(null));
+        Integer authorId = requiredUserId(chunk, answerDtoAdmin.getAuthor());
+        Answer answer = answerMapper.answerDtoAdminToAnswer(answerDtoAdmin);
+        Question targetQuestion = AnswerServiceImpl.checkTargetQuestion(questionId, questionRepository.findById(questionId), answer);
+        answer.setTargetQuestion(targetQuestion);
+        answer.setAuthor(userRepository.getById(authorId));
+        answerRepository.save(answer);
+        chunk.reference(PostType.ANSWER, legacyId, answer.getId());
+        chunk.addPosts(authorId, 0, 1, 0);
+        chunk.answers++;
+        if (record.path("best").asBoolean(false)) {
+            Answer oldBestAnswer = targetQuestion.getBestAnswer();
+            if (oldBestAnswer != null) {
+                oldBestAnswer.setIsBestAnswer(false);
+                if (oldBestAnswer.getAuthor() != null)
+                    chunk.addPosts(oldBestAnswer.getAuthor().getId(), 0, 0, -1);
+            }
+            answer.setIsBestAnswer(true);
+            targetQuestion.setBestAnswer(answer);
+            chunk.addPosts(authorId, 0, 0, 1);
+        }
+        hotQuestions.addAnswers(questionId, 1);
+        searchIndex.indexAnswer(answer.getId(), questionId, answer.getContent());
+    }
+
+    private void importVote(Chunk chunk, JsonNode record) {
+        PostType postType;
+        if (record.hasNonNull("question"))
+            postType = PostType.QUESTION;
+        else if (record.hasNonNull("answer"))
+            postType = PostType.ANSWER;
+        else
+            throw new CustomValidationException("Vote must refer to a question or an answer");
+        Integer postId = requiredPostId(chunk, postType, record.path(postType.name().toLowerCase()).asText());
+        Integer userId = requiredUserId(chunk, record.path("user").asText(null));
+        VoteType voteType = Arrays.stream(VoteType.values())
+                .filter(type -> type.name().equals(record.path("vote").asText()))
+                .findFirst()
+                .orElseThrow(() -> new CustomValidationException("Vote must be UP or DOWN"));
+        chunk.votes.get(postType).add(new ImportedVote(postId, userId, voteType));
+    }
+
+    private void writeVotes(Chunk chunk, PostType postType) {
+        List<ImportedVote> votes = chunk.votes.get(postType);
+        if (votes.isEmpty())
+            return;
+        String postTable = postType.name().toLowerCase();
+        String voteTable = postTable + "_vote";
+        String postColumn = postTable + "_id";
+        int[] results = jdbcTemplate.batchUpdate("insert into " + voteTable + " (user_id, " + postColumn + ", vote_type) " +
+                        "select ?, ?, ? from dual where not exists (select 1 from " + voteTable + " where user_id = ? and " + postColumn + " = ?)",
+                votes.stream()
+                        .map(vote -> new Object[]{vote.userId, vote.postId, vote.type.name(), vote.userId, vote.postId})
+                        .collect(Collectors.toList()));
+        Map<Integer, int[]> deltas = new HashMap<>();
+        for (int i = 0; i < votes.size(); i++) {
+            if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
+                continue;
+            ImportedVote vote = votes.get(i);
+            int[] delta = deltas.computeIfAbsent(vote.postId, postId -> new int[2]);
+            delta[0] += vote.type.getUpDelta();
+            delta[1] += vote.type.getDownDelta();
+            voterIndex.record(postType, vote.postId, vote.userId, vote.type);
+            chunk.votesWritten++;
+        }
+        voteCounters.addAll(postType, deltas);
+        if (postType == PostType.QUESTION)
+            deltas.forEach((postId, delta) -> hotQuestions.addVotes(postId, delta[0] - delta[1]));
+        chunk.votedPosts.put(postType, deltas.keySet());
+    }
+
+    private void writeReferences(String name, Chunk chunk) {
+        List<Object[]> args = new ArrayList<>();
+        chunk.references.forEach((postType, references) -> references.forEach((legacyId, postId) ->
+                args.add(new Object[]{name, postType.name(), legacyId, postId})));
+        jdbcTemplate.batchUpdate("insert into import_reference (import_name, post_type, legacy_id, post_id) values (?, ?, ?, ?)", args);
+    }
+
+    private Map<String, Integer> loadUserIds() {
+        Map<String, Integer> userIds = new HashMap<>();
+        jdbcTemplate.query("select id, username from user", resultSet -> {
+            userIds.put(resultSet.getString(2), resultSet.getInt(1));
+        });
+        return userIds;
+    }
+
+    private Map<PostType, Map<String, Integer>> loadReferences(String name) {
+        Map<PostType, Map<String, Integer>> references = emptyReferences();
+        jdbcTemplate.query("select post_type, legacy_id, post_id from import_reference where import_name = ?", resultSet -> {
+            references.get(PostType.valueOf(resultSet.getString(1))).put(resultSet.getString(2), resultSet.getInt(3));
+        }, name);
+        return references;
+    }
+
+    private <T> T validated(T dto) {
+        Set<ConstraintViolation<T>> violations = validator.validate(dto);
+        if (!violations.isEmpty())
+            throw new CustomValidationException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        return dto;
+    }
+
+    private static String legacyId(Chunk chunk, JsonNode record, PostType postType) {
+        String legacyId = record.path("id").asText(null);
+        if (legacyId != null && chunk.postId(postType, legacyId) != null)
+            throw new CustomValidationException("Duplicate " + postType.name().toLowerCase() + " id " + legacyId);
+        return legacyId;
+    }
+
+    private static Integer requiredUserId(Chunk chunk, String username) {
+        Integer userId = username == null ? null : chunk.userId(username);
+        if (userId == null)
+            throw new CustomValidationException("User " + username + " not found");
+        return userId;
+    }
+
+    private static Integer requiredPostId(Chunk chunk, PostType postType, String legacyId) {
+        Integer postId = legacyId == null ? null : chunk.postId(postType, legacyId);
+        if (postId == null)
+            throw new CustomValidationException(postType.name().charAt(0) + postType.name().substring(1).toLowerCase()
+                    + " with id " + legacyId + " not found");
+        return postId;
+    }
+
+    private static Map<PostType, Map<String, Integer>> emptyReferences() {
+        Map<PostType, Map<String, Integer>> references = new EnumMap<>(PostType.class);
+        for (PostType postType : PostType.values())
+            references.put(postType, new HashMap<>());
+        return references;
+    }
+
+    /**
+     * Everything committed so far by one run of an import.
+     */
+    private static class Progress {
+        private final String name;
+        private final Map<String, Integer> userIds;
+        private final Map<PostType, Map<String, Integer>> postIds;
+        private final List<String> errors = new ArrayList<>();
+        private int users;
+        private int questions;
+        private int answers;
+        private int votes;
+        private int rejected;
+
+        private Progress(String name, Map<String, Integer> userIds, Map<PostType, Map<String, Integer>> postIds) {
+            this.name = name;
+            this.userIds = userIds;
+            this.postIds = postIds;
+        }
+
+        private void absorb(Chunk chunk) {
+            userIds.putAll(chunk.userIds);
+            chunk.references.forEach((postType, references) -> postIds.get(postType).putAll(references));
+            users += chunk.users;
+            questions += chunk.questions;
+            answers += chunk.answers;
+            votes += chunk.votesWritten;
+            rejected += chunk.rejected.size();
+            chunk.rejected.stream().limit(MAX_REPORTED_ERRORS - errors.size()).forEach(errors::add);
+        }
+    }
+
+    /**
+     * What one chunk adds on top of the progress, kept apart until its transaction commits.
+     */
+    private static class Chunk {
+        private final Progress progress;
+        private final Map<String, Integer> userIds = new HashMap<>();
+        private final Map<PostType, Map<String, Integer>> references = emptyReferences();
+        private final Map<PostType, List<ImportedVote>> votes = new EnumMap<>(Map.of(PostType.QUESTION, new ArrayList<>(), PostType.ANSWER, new ArrayList<>()));
+        private final Map<PostType, Set<Integer>> votedPosts = new EnumMap<>(PostType.class);
+        private final Map<Integer, int[]> postsByAuthor = new HashMap<>();
+        private final List<String> rejected = new ArrayList<>();
+        private int users;
+        private int questions;
+        private int answers;
+        private int votesWritten;
+
+        private Chunk(Progress progress) {
+            this.progress = progress;
+        }
+
+        private Integer userId(String username) {
+            Integer userId = userIds.get(username);
+            return userId != null ? userId : progress.userIds.get(username);
+        }
+
+        private Integer postId(PostType postType, String legacyId) {
+            Integer postId = references.get(postType).get(legacyId);
+            return postId != null ? postId : progress.postIds.get(postType).get(legacyId);
+        }
+
+        private void reference(PostType postType, String legacyId, Integer postId) {
+            if (legacyId != null)
+                references.get(postType).put(legacyId, postId);
+        }
+
+        private void addPosts(Integer authorId, int questions, int answers, int acceptedAnswers) {
+            int[] delta = postsByAuthor.computeIfAbsent(authorId, id -> new int[3]);
+            delta[0] += questions;
+            delta[1] += answers;
+            delta[2] += acceptedAnswers;
+        }
+
+        private void reject(long lineNumber, String message) {
+            rejected.add("line " + lineNumber + ": " + message);
+        }
+    }
+
+    private static class ImportedVote {
+        private final Integer postId;
+        private final Integer userId;
+        private final VoteType type;
+
+        private ImportedVote(Integer postId, Integer userId, VoteType type) {
+            this.postId = postId;
+            this.userId = userId;
+            this.type = type;
+        }
+    }
+}
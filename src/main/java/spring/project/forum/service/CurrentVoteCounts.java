@@ -0,0 +1,70 @@
+package spring.project.forum.service;
+
+import org.springframework.stereotype.Component;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.VoteCounted;
+import spring.project.forum.model.projection.VoteCounts;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the vote counts of posts read from their own rows up to date. The rows only change when the vote
+ * counters are folded into them, so the counts are taken from the vote counts lookup, which adds the shards
+ * not folded yet in the same statement, plus the votes still pending in the write-behind buffer.
+ */
+@Component
+public class CurrentVoteCounts {
+
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    public CurrentVoteCounts(QuestionRepository questionRepository, AnswerRepository answerRepository, VoteWriteBehindBuffer voteWriteBehindBuffer) {
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+    }
+
+    public <T extends VoteCounted> T merge(PostType postType, T post) {
+        mergeAll(postType, List.of(post));
+        return post;
+    }
+
+    public <T extends Iterable<? extends VoteCounted>> T mergeAll(PostType postType, T posts) {
+        List<Integer> postIds = new ArrayList<>();
+        posts.forEach(post -> postIds.add(post.getId()));
+        if (postIds.isEmpty())
+            return posts;
+        Map<Integer, VoteCounts> counts = (postType == PostType.QUESTION ? questionRepository.findVoteCountsByIdIn(postIds)
+                : answerRepository.findVoteCountsByIdIn(postIds)).stream()
+                .collect(Collectors.toMap(VoteCounts::getId, Function.identity()));
+        for (VoteCounted post : posts) {
+            VoteCounts current = counts.get(post.getId());
+            if (current == null)
+                continue;
+            post.setPendingVotes(0, 0);
+            int[] pending = voteWriteBehindBuffer.pendingCounts(postType, post.getId());
+            post.setPendingVotes(current.getUpVoteCount() - post.getUpVoteCount() + pending[0],
+                    current.getDownVoteCount() - post.getDownVoteCount() + pending[1]);
+        }
+        return posts;
+    }
+
+    /**
+     * For posts read with the shards already counted, adds only the votes pending in the write-behind buffer.
+     */
+    public <T extends Iterable<? extends VoteCounted>> T mergePending(PostType postType, T posts) {
+        if (voteWriteBehindBuffer.isEnabled())
+            for (VoteCounted post : posts) {
+                int[] pending = voteWriteBehindBuffer.pendingCounts(postType, post.getId());
+                post.setPendingVotes(pending[0], pending[1]);
+            }
+        return posts;
+    }
+}
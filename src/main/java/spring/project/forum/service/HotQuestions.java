@@ -0,0 +1,176 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-memory "hot" ranking of the open questions asked within the last max-age-days. A question's hotness is
+ * (score + answer-weight * answers + 1) / (age in hours + 2) ^ gravity, with the age taken at the last decay pass,
+ * so all questions are ranked against the same clock between two passes.
+ * <p>
+ * Votes, answers, closing and reopening move a single question in a skip list ordered by hotness, once the
+ * change commits; reading the top n walks the first n entries. The index is rebuilt from the database on
+ * startup, and every decay-interval-ms the ages are moved on and questions past max-age-days dropped.
+ */
+@Slf4j
+@Component
+public class HotQuestions {
+
+    private static final Comparator<Ranked> HOTTEST_FIRST = Comparator.comparingDouble((Ranked ranked) -> ranked.hotness).reversed()
+            .thenComparing(ranked -> ranked.questionId, Comparator.reverseOrder());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double gravity;
+    private final double answerWeight;
+    private final int maxAgeDays;
+
+    private final Map<Integer, Tracked> tracked = new HashMap<>();
+    private volatile ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>(HOTTEST_FIRST);
+    private LocalDateTime rankedAt = LocalDateTime.now();
+
+    public HotQuestions(JdbcTemplate jdbcTemplate,
+                        @Value("${forum.questions.hot.gravity:1.8}") double gravity,
+                        @Value("${forum.questions.hot.answer-weight:2}") double answerWeight,
+                        @Value("${forum.questions.hot.max-age-days:30}") int maxAgeDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gravity = gravity;
+        this.answerWeight = answerWeight;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        tracked.clear();
+        jdbcTemplate.query("select q.id, q.created_at, q.closed_at, " +
+                "q.score + (select coalesce(sum(c.up_vote_count - c.down_vote_count), 0) from question_vote_counter c where c.question_id = q.id), " +
+                "(select count(*) from answer a where a.target_question_id = q.id) " +
+                "from question q where q.created_at >= ?", resultSet -> {
+            Tracked question = new Tracked(resultSet.getDate(2).toLocalDate(), resultSet.getDate(3) != null);
+            question.score = resultSet.getInt(4);
+            question.answers = resultSet.getInt(5);
+            tracked.put(resultSet.getInt(1), question);
+        }, Date.valueOf(LocalDate.now().minusDays(maxAgeDays)));
+        decay();
+        log.info("Ranked {} hot questions", tracked.size());
+    }
+
+    @Scheduled(fixedDelayString = "${forum.questions.hot.decay-interval-ms:60000}")
+    public synchronized void decay() {
+        rankedAt = LocalDateTime.now();
+        LocalDate oldest = rankedAt.toLocalDate().minusDays(maxAgeDays);
+        ConcurrentSkipListSet<Ranked> decayed = new ConcurrentSkipListSet<>(HOTTEST_FIRST);
+        Iterator<Map.Entry<Integer, Tracked>> questions = tracked.entrySet().iterator();
+        while (questions.hasNext()) {
+            Map.Entry<Integer, Tracked> question = questions.next();
+            if (question.getValue().createdAt == null || question.getValue().createdAt.isBefore(oldest)) {
+                questions.remove();
+                continue;
+            }
+            question.getValue().ranked = rank(question.getKey(), question.getValue());
+            if (question.getValue().ranked != null)
+                decayed.add(question.getValue().ranked);
+        }
+        ranking = decayed;
+    }
+
+    public List<Integer> top(int limit) {
+        List<Integer> questionIds = new ArrayList<>(limit);
+        Iterator<Ranked> hottest = ranking.iterator();
+        while (questionIds.size() < limit && hottest.hasNext())
+            questionIds.add(hottest.next().questionId);
+        return questionIds;
+    }
+
+    /**
+     * Starts tracking a new question or takes over a changed creation or closing date.
+     */
+    public void track(Integer questionId, LocalDate createdAt, LocalDate closedAt) {
+        AfterCommit.run(() -> update(questionId, question -> {
+            question.createdAt = createdAt;
+            question.closed = closedAt != null;
+        }, () -> new Tracked(createdAt, closedAt != null)));
+    }
+
+    public void addVotes(Integer questionId, int scoreDelta) {
+        AfterCommit.run(() -> update(questionId, question -> question.score += scoreDelta, null));
+    }
+
+    public void addAnswers(Integer questionId, int answerDelta) {
+        AfterCommit.run(() -> update(questionId, question -> question.answers += answerDelta, null));
+    }
+
+    public void remove(Integer questionId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                Tracked question = tracked.remove(questionId);
+                if (question != null && question.ranked != null)
+                    ranking.remove(question.ranked);
+            }
+        });
+    }
+
+    private synchronized void update(Integer questionId, Consumer<Tracked> change, Supplier<Tracked> newQuestion) {
+        Tracked question = tracked.get(questionId);
+        if (question == null) {
+            if (newQuestion == null)
+                return;
+            question = newQuestion.get();
+            tracked.put(questionId, question);
+        }
+        if (question.ranked != null)
+            ranking.remove(question.ranked);
+        change.accept(question);
+        question.ranked = rank(questionId, question);
+        if (question.ranked != null)
+            ranking.add(question.ranked);
+    }
+
+    private Ranked rank(Integer questionId, Tracked question) {
+        if (question.closed || question.createdAt == null || question.createdAt.isBefore(rankedAt.toLocalDate().minusDays(maxAgeDays)))
+            return null;
+        double ageHours = Math.max(0, Duration.between(question.createdAt.atStartOfDay(), rankedAt).toMinutes() / 60.0);
+        return new Ranked(questionId, (question.score + answerWeight * question.answers + 1) / Math.pow(ageHours + 2, gravity));
+    }
+
+    private static class Tracked {
+        private LocalDate createdAt;
+        private boolean closed;
+        private int score;
+        private int answers;
+        private Ranked ranked;
+
+        private Tracked(LocalDate createdAt, boolean closed) {
+            this.createdAt = createdAt;
+            this.closed = closed;
+        }
+    }
+
+    private static class Ranked {
+        private final Integer questionId;
+        private final double hotness;
+
+        private Ranked(Integer questionId, double hotness) {
+            this.questionId = questionId;
+            this.hotness = hotness;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package spring.project.forum.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import spring.project.forum.api.v1.dto.CursorPageDto;
+import spring.project.forum.exception.IncorrectPageableException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque {@code after} token of keyset pagination: the creation date and id of the last row of the previous page.
+ * Listings are ordered by {@code (createdAt, id)}, so the next page is a range read on that index instead of an OFFSET scan.
+ * An empty token starts from the first row.
+ */
+final class KeysetCursor {
+
+    private static final int MAX_LIMIT = 100;
+
+    private static final KeysetCursor FIRST = new KeysetCursor(null, null);
+
+    private final LocalDate createdAt;
+    private final Integer id;
+
+    private KeysetCursor(LocalDate createdAt, Integer id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    LocalDate getCreatedAt() {
+        return createdAt;
+    }
+
+    Integer getId() {
+        return id;
+    }
+
+    static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank())
+            return FIRST;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2)
+                throw new IncorrectPageableException("Malformed page token " + token);
+            return new KeysetCursor(LocalDate.parse(parts[0]), Integer.valueOf(parts[1]));
+        } catch (IllegalArgumentException | DateTimeParseException exc) {
+            throw new IncorrectPageableException("Malformed page token " + token, exc);
+        }
+    }
+
+    /**
+     * Asks for one row more than the page size so that the presence of a next page is known without a count query.
+     */
+    static Pageable pageable(Integer limit) {
+        if (limit == null || limit < 1 || limit > MAX_LIMIT)
+            throw new IncorrectPageableException("Page size must be between 1 and " + MAX_LIMIT);
+        return PageRequest.of(0, limit + 1);
+    }
+
+    static <T> CursorPageDto<T> page(List<T> rows, Integer limit, Function<T, LocalDate> createdAt, Function<T, Integer> id) {
+        if (rows.size() <= limit)
+            return CursorPageDto.<T>builder().content(rows).build();
+        List<T> content = new ArrayList<>(rows.subList(0, limit));
+        T last = content.get(limit - 1);
+        return CursorPageDto.<T>builder()
+                .content(content)
+                .next(encode(createdAt.apply(last), id.apply(last)))
+                .build();
+    }
+
+    private static String encode(LocalDate createdAt, Integer id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((createdAt + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
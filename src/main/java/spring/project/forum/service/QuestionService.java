@@ -1,15 +1,32 @@
 package spring.project.forum.service;
 
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import spring.project.forum.api.v1.dto.CursorPageDto;
 import spring.project.forum.api.v1.dto.QuestionDto;
 import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionThreadDto;
+import spring.project.forum.api.v1.dto.ThreadVotesDto;
+import spring.project.forum.api.v1.dto.TitleSuggestionDto;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
+import spring.project.forum.model.PageCount;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.security.User;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface QuestionService {
     Question getById(Integer questionId);
 
+    byte[] getRenderedById(Integer questionId);
+
+    String getVersion(Integer questionId);
+
+    QuestionThreadDto getThread(Integer questionId);
+
     void deleteById(Integer questionId);
 
     Question updateQuestionAdmin(Integer questionId, QuestionDtoAdmin questionDtoAdmin);
@@ -24,9 +41,19 @@ public interface QuestionService {
 
     Question unDownVote(Integer questionId);
 
-    List<Question> getAll();
+    VoteCountsDto setVote(Integer questionId, VoteState state);
+
+    void applyVote(Integer questionId, User voter, VoteState state);
+
+    ThreadVotesDto getMyVotes(Integer questionId);
+
+    List<QuestionSummary> getAll();
+
+    void streamAll(Consumer<QuestionSummary> consumer);
+
+    Slice<QuestionSummary> getAll(Integer pageNum, Integer pageSize, String sortBy, PageCount count);
 
-    Page<Question> getAll(Integer pageNum, Integer pageSize, String sortBy);
+    CursorPageDto<QuestionSummary> getAll(String after, Integer limit);
 
     Question createQuestionAdmin(QuestionDtoAdmin questionDtoAdmin);
 
@@ -36,19 +63,35 @@ public interface QuestionService {
 
     Question openQuestion(Integer questionId);
 
-    List<Question> getByAuthor(String username);
+    List<QuestionSummary> getByAuthor(String username);
 
-    Page<Question> getByAuthor(String username, Integer pageNum, Integer pageSize, String sortBy);
+    void streamByAuthor(String username, Consumer<QuestionSummary> consumer);
 
-    List<Question> getWithoutBestAnswer(String username);
+    Slice<QuestionSummary> getByAuthor(String username, Integer pageNum, Integer pageSize, String sortBy, PageCount count);
 
-    Page<Question> getWithoutBestAnswer(String username, Integer pageNum, Integer pageSize, String sortBy);
+    CursorPageDto<QuestionSummary> getByAuthor(String username, String after, Integer limit);
+
+    List<QuestionSummary> getWithoutBestAnswer();
+
+    Slice<QuestionSummary> getWithoutBestAnswer(Integer pageNum, Integer pageSize, String sortBy, PageCount count);
 
     Question setBestAnswer(Integer questionId, Integer answerId);
 
     Question unsetBestAnswer(Integer questionId);
 
-    List<Question> getNotClosed();
+    List<QuestionSummary> getHot(Integer limit);
+
+    List<TitleSuggestionDto> suggestTitles(String prefix, Integer limit);
+
+    CursorPageDto<QuestionSummary> getUnresolved(String author, LocalDate from, LocalDate to, boolean unansweredOnly, String after, Integer limit);
+
+    List<QuestionSummary> getNotClosed();
+
+    void streamNotClosed(Consumer<QuestionSummary> consumer);
+
+    List<QuestionSummary> getQuestionsAnsweredByUser(String username);
+
+    Slice<QuestionSummary> getQuestionsAnsweredByUser(String username, Integer pageNum, Integer pageSize, String sortBy, PageCount count);
 
-    List<Question> getQuestionsAnsweredByUser(String username);
+    CursorPageDto<QuestionSummary> getQuestionsAnsweredByUser(String username, String after, Integer limit);
 }
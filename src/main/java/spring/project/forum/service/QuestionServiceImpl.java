@@ -1,43 +1,99 @@
 package spring.project.forum.service;
 
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import spring.project.forum.api.v1.dto.CursorPageDto;
 import spring.project.forum.api.v1.dto.QuestionDto;
 import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionThreadDto;
+import spring.project.forum.api.v1.dto.ThreadVotesDto;
+import spring.project.forum.api.v1.dto.TitleSuggestionDto;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
 import spring.project.forum.api.v1.mapper.QuestionMapper;
+import spring.project.forum.datasource.ReadFromReplica;
 import spring.project.forum.exception.*;
 import spring.project.forum.model.Answer;
+import spring.project.forum.model.PageCount;
+import spring.project.forum.model.PostType;
 import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.VoteType;
+import spring.project.forum.model.projection.AnswerSummary;
+import spring.project.forum.model.projection.QuestionDetail;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.projection.VoteCounts;
 import spring.project.forum.model.security.User;
 import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.AnswerVoteRepository;
 import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.QuestionVoteRepository;
 import spring.project.forum.repository.security.UserRepository;
 
 import javax.transaction.Transactional;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class QuestionServiceImpl implements QuestionService {
 
+    private static final int MAX_HOT_LIMIT = 100;
+    private static final int MAX_SUGGESTION_LIMIT = 20;
+
     private final QuestionRepository questionRepository;
     private final AnswerRepository answerRepository;
     private final UserRepository userRepository;
+    private final QuestionVoteRepository questionVoteRepository;
+    private final AnswerVoteRepository answerVoteRepository;
     private final QuestionMapper questionMapper;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+    private final VoterIndex voterIndex;
+    private final VoteCounters voteCounters;
+    private final ResultStreamer resultStreamer;
+    private final ApproximateCounts approximateCounts;
+    private final QuestionVersions questionVersions;
+    private final RenderedResponseCache questionDetailCache;
+    private final HotQuestions hotQuestions;
+    private final SearchIndex searchIndex;
+    private final TitleSuggestions titleSuggestions;
+    private final UserStatsCounters userStatsCounters;
+    private final CurrentVoteCounts currentVoteCounts;
 
-    public QuestionServiceImpl(QuestionRepository questionRepository, AnswerRepository answerRepository, UserRepository userRepository, QuestionMapper questionMapper) {
+    public QuestionServiceImpl(QuestionRepository questionRepository, AnswerRepository answerRepository, UserRepository userRepository, QuestionVoteRepository questionVoteRepository, AnswerVoteRepository answerVoteRepository, QuestionMapper questionMapper, VoteWriteBehindBuffer voteWriteBehindBuffer, VoterIndex voterIndex, VoteCounters voteCounters, ResultStreamer resultStreamer, ApproximateCounts approximateCounts, QuestionVersions questionVersions, RenderedResponseCache questionDetailCache, HotQuestions hotQuestions, SearchIndex searchIndex, TitleSuggestions titleSuggestions, UserStatsCounters userStatsCounters, CurrentVoteCounts currentVoteCounts) {
         this.questionRepository = questionRepository;
         this.answerRepository = answerRepository;
         this.userRepository = userRepository;
+        this.questionVoteRepository = questionVoteRepository;
+        this.answerVoteRepository = answerVoteRepository;
         this.questionMapper = questionMapper;
+        this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+        this.voterIndex = voterIndex;
+        this.voteCounters = voteCounters;
+        this.resultStreamer = resultStreamer;
+        this.approximateCounts = approximateCounts;
+        this.questionVersions = questionVersions;
+        this.questionDetailCache = questionDetailCache;
+        this.hotQuestions = hotQuestions;
+        this.searchIndex = searchIndex;
+        this.titleSuggestions = titleSuggestions;
+        this.userStatsCounters = userStatsCounters;
+        this.currentVoteCounts = currentVoteCounts;
     }
 
     @Override
@@ -45,17 +101,54 @@ public class QuestionServiceImpl implements QuestionService {
         Optional<Question> questionOptional = questionRepository.findById(questionId);
         if (questionOptional.isEmpty())
             throw new ResourceNotFoundException("Question with id " + questionId + " not found");
-        return questionOptional.get();
+        return currentVoteCounts.merge(PostType.QUESTION, questionOptional.get());
+    }
+
+    @Override
+    public byte[] getRenderedById(Integer questionId) {
+        return questionDetailCache.get(questionId, questionVersions.current(questionId), () -> getById(questionId));
+    }
+
+    @Override
+    public String getVersion(Integer questionId) {
+        return questionVersions.current(questionId);
     }
 
     @Override
+    @ReadFromReplica
+    public QuestionThreadDto getThread(Integer questionId) {
+        QuestionDetail question = questionRepository.findDetailById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
+        List<AnswerSummary> answers = answerRepository.findSummariesByTargetQuestionId(questionId);
+        currentVoteCounts.mergePending(PostType.QUESTION, List.of(question));
+        currentVoteCounts.mergePending(PostType.ANSWER, answers);
+        return QuestionThreadDto.builder()
+                .question(question)
+                .answers(answers)
+                .build();
+    }
+
+    @Override
+    @Transactional
     public void deleteById(Integer questionId) {
         if (!questionRepository.existsById(questionId))
             throw new ResourceNotFoundException("question with id " + questionId + "not found");
+        List<Integer> answerIds = answerRepository.findIdsByTargetQuestionId(questionId);
+        answerIds.forEach(answerId -> voterIndex.removePost(PostType.ANSWER, answerId));
+        voterIndex.removePost(PostType.QUESTION, questionId);
+        userStatsCounters.removePosts(PostType.ANSWER, answerIds);
+        userStatsCounters.removePosts(PostType.QUESTION, List.of(questionId));
+        answerVoteRepository.deleteAllByQuestionId(questionId);
+        questionVoteRepository.deleteAllByQuestionId(questionId);
+        voteCounters.removeQuestion(questionId);
         questionRepository.deleteById(questionId);
+        hotQuestions.remove(questionId);
+        searchIndex.removeQuestion(questionId);
+        titleSuggestions.remove(questionId);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question updateQuestionAdmin(Integer questionId, QuestionDtoAdmin questionDtoAdmin) {
         Question updatedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -65,94 +158,191 @@ public class QuestionServiceImpl implements QuestionService {
             throw new CustomValidationException("Question closing date cannot be before question creation date");
         updatedQuestion.setTitle(questionDtoAdmin.getTitle());
         updatedQuestion.setContent(questionDtoAdmin.getContent());
+        Integer oldAuthorId = updatedQuestion.getAuthor() == null ? null : updatedQuestion.getAuthor().getId();
         updatedQuestion.setAuthor(userRepository.findByUsername(questionDtoAdmin.getAuthor()).get());
-        return questionRepository.save(updatedQuestion);
+        userStatsCounters.moveAuthor(PostType.QUESTION, questionId, oldAuthorId, updatedQuestion.getAuthor().getId());
+        hotQuestions.track(questionId, updatedQuestion.getCreatedAt(), updatedQuestion.getClosedAt());
+        searchIndex.indexQuestion(questionId, updatedQuestion.getTitle(), updatedQuestion.getContent());
+        titleSuggestions.put(questionId, updatedQuestion.getTitle());
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(updatedQuestion));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question updateQuestion(Integer questionId, QuestionDto questionDto) {
         Question updatedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
         updatedQuestion.setTitle(questionDto.getTitle());
         updatedQuestion.setContent(questionDto.getContent());
-        return questionRepository.save(updatedQuestion);
+        searchIndex.indexQuestion(questionId, updatedQuestion.getTitle(), updatedQuestion.getContent());
+        titleSuggestions.put(questionId, updatedQuestion.getTitle());
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(updatedQuestion));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question upVote(Integer questionId) {
-        Question upVotedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
-        User upVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (upVotedQuestion.getUpVotes().contains(upVoter))
-            throw new VotingException("User " + upVoter.getUsername() + " already upvoted question id " + upVotedQuestion.getId());
-        if (upVotedQuestion.getDownVotes().contains(upVoter)) {
-            upVoter.getDownVotedQuestions().remove(upVotedQuestion);
-            upVotedQuestion.getDownVotes().remove(upVoter);
-        }
-        upVoter.getUpVotedQuestions().add(upVotedQuestion);
-        upVotedQuestion.getUpVotes().add(upVoter);
-        return questionRepository.save(upVotedQuestion);
+        return vote(questionId, VoteType.UP);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question downVote(Integer questionId) {
-        Question downVotedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
-        User downVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (downVotedQuestion.getDownVotes().contains(downVoter))
-            throw new VotingException("User " + downVoter.getUsername() + " already downvoted question id " + downVotedQuestion.getId());
-        if (downVotedQuestion.getUpVotes().contains(downVoter)) {
-            downVoter.getUpVotedQuestions().remove(downVotedQuestion);
-            downVotedQuestion.getUpVotes().remove(downVoter);
-        }
-        downVoter.getDownVotedQuestions().add(downVotedQuestion);
-        downVotedQuestion.getDownVotes().add(downVoter);
-        return questionRepository.save(downVotedQuestion);
+        return vote(questionId, VoteType.DOWN);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question unUpVote(Integer questionId) {
-        Question upVotedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
-        User upVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (!upVotedQuestion.getUpVotes().contains(upVoter))
-            throw new VotingException("User " + upVoter.getUsername() + " haven't upvoted question id " + upVotedQuestion.getId());
-        upVoter.getUpVotedQuestions().remove(upVotedQuestion);
-        upVotedQuestion.getUpVotes().remove(upVoter);
-        return questionRepository.save(upVotedQuestion);
+        return unVote(questionId, VoteType.UP);
     }
 
     @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question unDownVote(Integer questionId) {
-        Question downVotedQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
-        User downVoter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
-        if (!downVotedQuestion.getDownVotes().contains(downVoter))
-            throw new VotingException("User " + downVoter.getUsername() + " haven't downvoted question id " + downVotedQuestion.getId());
-        downVoter.getDownVotedQuestions().remove(downVotedQuestion);
-        downVotedQuestion.getDownVotes().remove(downVoter);
-        return questionRepository.save(downVotedQuestion);
+        return unVote(questionId, VoteType.DOWN);
     }
 
     @Override
-    public List<Question> getAll() {
-        return questionRepository.findAll();
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
+    public VoteCountsDto setVote(Integer questionId, VoteState state) {
+        if (!questionRepository.existsById(questionId))
+            throw new ResourceNotFoundException("Question with id " + questionId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        applyVote(questionId, voter, state);
+        VoteCounts voteCounts = questionRepository.findVoteCountsById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
+        int[] pending = voteWriteBehindBuffer.pendingCounts(PostType.QUESTION, questionId);
+        return VoteCountsDto.builder()
+                .postId(questionId)
+                .state(state)
+                .upVoteCount(voteCounts.getUpVoteCount() + pending[0])
+                .downVoteCount(voteCounts.getDownVoteCount() + pending[1])
+                .score(voteCounts.getScore() + pending[0] - pending[1])
+                .build();
+    }
+
+    @Override
+    @ReadFromReplica
+    public ThreadVotesDto getMyVotes(Integer questionId) {
+        if (!questionRepository.existsById(questionId))
+            throw new ResourceNotFoundException("Question with id " + questionId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        return ThreadVotesDto.builder()
+                .questionId(questionId)
+                .questionVote(voterIndex.stateOf(PostType.QUESTION, questionId, voter.getId()))
+                .answerVotes(voterIndex.statesOf(PostType.ANSWER, answerRepository.findIdsByTargetQuestionId(questionId), voter.getId()))
+                .build();
     }
 
     @Override
-    public Page<Question> getAll(Integer pageNum, Integer pageSize, String sortBy) {
+    public void applyVote(Integer questionId, User voter, VoteState state) {
+        if (voteWriteBehindBuffer.isEnabled())
+            voteWriteBehindBuffer.setVote(PostType.QUESTION, questionId, voter, state.toVoteType());
+        else if (state == VoteState.NONE)
+            removeVote(voter.getId(), questionId);
+        else
+            putVote(voter.getId(), questionId, state.toVoteType());
+        voterIndex.record(PostType.QUESTION, questionId, voter.getId(), state.toVoteType());
+    }
+
+    private boolean putVote(Integer userId, Integer questionId, VoteType voteType) {
+        VoteType oppositeType = voteType.opposite();
+        if (questionVoteRepository.changeVoteType(userId, questionId, oppositeType, voteType) == 1)
+            voteCounters.add(PostType.QUESTION, questionId, userId, voteType.getUpDelta() - oppositeType.getUpDelta(), voteType.getDownDelta() - oppositeType.getDownDelta());
+        else if (questionVoteRepository.insertVoteIfAbsent(userId, questionId, voteType.name()) == 1)
+            voteCounters.add(PostType.QUESTION, questionId, userId, voteType.getUpDelta(), voteType.getDownDelta());
+        else
+            return false;
+        return true;
+    }
+
+    private void removeVote(Integer userId, Integer questionId) {
+        for (VoteType voteType : VoteType.values())
+            if (questionVoteRepository.deleteVote(userId, questionId, voteType) == 1) {
+                voteCounters.add(PostType.QUESTION, questionId, userId, -voteType.getUpDelta(), -voteType.getDownDelta());
+                return;
+            }
+    }
+
+    private Question vote(Integer questionId, VoteType voteType) {
+        if (!questionRepository.existsById(questionId))
+            throw new ResourceNotFoundException("Question with id " + questionId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        if (voteWriteBehindBuffer.isEnabled()) {
+            voteWriteBehindBuffer.vote(PostType.QUESTION, questionId, voter, voteType);
+            voterIndex.record(PostType.QUESTION, questionId, voter.getId(), voteType);
+            return getById(questionId);
+        }
+        if (!putVote(voter.getId(), questionId, voteType))
+            throw new VotingException("User " + voter.getUsername() + " already " + voteType.name().toLowerCase() + "voted question id " + questionId);
+        voterIndex.record(PostType.QUESTION, questionId, voter.getId(), voteType);
+        return getById(questionId);
+    }
+
+    private Question unVote(Integer questionId, VoteType voteType) {
+        if (!questionRepository.existsById(questionId))
+            throw new ResourceNotFoundException("Question with id " + questionId + " not found");
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        if (voteWriteBehindBuffer.isEnabled()) {
+            voteWriteBehindBuffer.unVote(PostType.QUESTION, questionId, voter, voteType);
+            voterIndex.record(PostType.QUESTION, questionId, voter.getId(), null);
+            return getById(questionId);
+        }
+        if (questionVoteRepository.deleteVote(voter.getId(), questionId, voteType) == 0)
+            throw new VotingException("User " + voter.getUsername() + " haven't " + voteType.name().toLowerCase() + "voted question id " + questionId);
+        voterIndex.record(PostType.QUESTION, questionId, voter.getId(), null);
+        voteCounters.add(PostType.QUESTION, questionId, voter.getId(), -voteType.getUpDelta(), -voteType.getDownDelta());
+        return getById(questionId);
+    }
+
+    @Override
+    @ReadFromReplica
+    public List<QuestionSummary> getAll() {
+        return withCurrentVotes(questionRepository.findAllSummaries());
+    }
+
+    @Override
+    @Transactional
+    public void streamAll(Consumer<QuestionSummary> consumer) {
+        resultStreamer.forEach(questionRepository.streamAllSummaries(), this::withCurrentVotes, consumer);
+    }
+
+    @Override
+    @ReadFromReplica
+    public Slice<QuestionSummary> getAll(Integer pageNum, Integer pageSize, String sortBy, PageCount count) {
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return questionRepository.findAll(pageable);
-        } catch (PropertyReferenceException exc) {
+            if (count == PageCount.NONE)
+                return withCurrentVotes(questionRepository.findAllSummarySlice(pageable));
+            if (count == PageCount.APPROXIMATE)
+                return withCurrentVotes(approximateCounts.page(questionRepository.findAllSummarySlice(pageable), "questions", questionRepository::count));
+            return withCurrentVotes(questionRepository.findAllSummaries(pageable));
+        } catch (PropertyReferenceException | InvalidDataAccessApiUsageException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
     }
 
+    @Override
+    @ReadFromReplica
+    public CursorPageDto<QuestionSummary> getAll(String after, Integer limit) {
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<QuestionSummary> questions = questionRepository.findSummariesAfter(cursor.getCreatedAt(), cursor.getId(), KeysetCursor.pageable(limit));
+        return KeysetCursor.page(withCurrentVotes(questions), limit, QuestionSummary::getCreatedAt, QuestionSummary::getId);
+    }
+
     @Override
     @Transactional
     public Question createQuestionAdmin(QuestionDtoAdmin questionDtoAdmin) {
         Question newQuestion = questionMapper.questionDtoAdminToQuestion(questionDtoAdmin);
-        if (newQuestion.getClosedAt() != null && newQuestion.getCreatedAt().isAfter(newQuestion.getClosedAt()))
-            throw new CustomValidationException("Question closing date cannot be before question creation date");
+        checkClosingDate(newQuestion);
         String authorUsername = questionDtoAdmin.getAuthor();
         newQuestion.setAuthor(userRepository.findByUsername(authorUsername).get());
-        return questionRepository.save(newQuestion);
+        return questionCreated(questionRepository.save(newQuestion));
     }
 
     @Override
@@ -163,10 +353,12 @@ public class QuestionServiceImpl implements QuestionService {
         newQuestion.setAuthor(author);
         newQuestion.setCreatedAt(LocalDate.now());
         author.getAskedQuestions().add(newQuestion);
-        return questionRepository.save(newQuestion);
+        return questionCreated(questionRepository.save(newQuestion));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question closeQuestion(Integer questionId) {
         Optional<Question> questionOptional = questionRepository.findById(questionId);
         if (questionOptional.isEmpty())
@@ -175,10 +367,13 @@ public class QuestionServiceImpl implements QuestionService {
         if (foundQuestion.getClosedAt() != null)
             throw new QuestionAlreadyClosedException("Question with id " + questionId + " has already been closed at " + foundQuestion.getClosedAt());
         foundQuestion.setClosedAt(LocalDate.now());
-        return questionRepository.save(foundQuestion);
+        hotQuestions.track(questionId, foundQuestion.getCreatedAt(), foundQuestion.getClosedAt());
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(foundQuestion));
     }
 
     @Override
+    @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question openQuestion(Integer questionId) {
         Optional<Question> questionOptional = questionRepository.findById(questionId);
         if (questionOptional.isEmpty())
@@ -187,73 +382,234 @@ public class QuestionServiceImpl implements QuestionService {
         if (foundQuestion.getClosedAt() == null)
             throw new QuestionNotClosedException("Question with id " + questionId + " has already been closed at " + foundQuestion.getClosedAt());
         foundQuestion.setClosedAt(null);
-        return questionRepository.save(foundQuestion);
+        hotQuestions.track(questionId, foundQuestion.getCreatedAt(), null);
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(foundQuestion));
+    }
+
+    @Override
+    @ReadFromReplica
+    public List<QuestionSummary> getByAuthor(String username) {
+        User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
+        return withCurrentVotes(questionRepository.findSummariesByAuthor(foundUser));
+    }
+
+    @Override
+    @Transactional
+    public void streamByAuthor(String username, Consumer<QuestionSummary> consumer) {
+        User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
+        resultStreamer.forEach(questionRepository.streamSummariesByAuthor(foundUser), this::withCurrentVotes, consumer);
     }
 
     @Override
-    public List<Question> getByAuthor(String username) {
+    @ReadFromReplica
+    public Slice<QuestionSummary> getByAuthor(String username, Integer pageNum, Integer pageSize, String sortBy, PageCount count) {
         User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
-        return questionRepository.findAllByAuthor(foundUser);
+        Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
+        try {
+            if (count == PageCount.NONE)
+                return withCurrentVotes(questionRepository.findSummarySliceByAuthor(foundUser, pageable));
+            if (count == PageCount.APPROXIMATE)
+                return withCurrentVotes(approximateCounts.page(questionRepository.findSummarySliceByAuthor(foundUser, pageable),
+                        "questions:author:" + foundUser.getId(), () -> questionRepository.countByAuthorId(foundUser.getId())));
+            return withCurrentVotes(questionRepository.findSummariesByAuthor(foundUser, pageable));
+        } catch (PropertyReferenceException | InvalidDataAccessApiUsageException exc) {
+            throw new IncorrectPageableException(exc.getMessage());
+        }
     }
 
     @Override
-    public Page<Question> getByAuthor(String username, Integer pageNum, Integer pageSize, String sortBy) {
+    @ReadFromReplica
+    public CursorPageDto<QuestionSummary> getByAuthor(String username, String after, Integer limit) {
+        User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<QuestionSummary> questions = questionRepository.findSummariesByAuthorAfter(foundUser, cursor.getCreatedAt(), cursor.getId(), KeysetCursor.pageable(limit));
+        return KeysetCursor.page(withCurrentVotes(questions), limit, QuestionSummary::getCreatedAt, QuestionSummary::getId);
+    }
+
+    @Override
+    @ReadFromReplica
+    public List<QuestionSummary> getQuestionsAnsweredByUser(String username) {
+        User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
+        return withCurrentVotes(questionRepository.findSummariesAnsweredBy(foundUser));
+    }
+
+    @Override
+    @ReadFromReplica
+    public Slice<QuestionSummary> getQuestionsAnsweredByUser(String username, Integer pageNum, Integer pageSize, String sortBy, PageCount count) {
         User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return questionRepository.findAllByAuthor(pageable, foundUser);
-        } catch (PropertyReferenceException exc) {
+            if (count == PageCount.NONE)
+                return withCurrentVotes(questionRepository.findSummarySliceAnsweredBy(foundUser, pageable));
+            if (count == PageCount.APPROXIMATE)
+                return withCurrentVotes(approximateCounts.page(questionRepository.findSummarySliceAnsweredBy(foundUser, pageable),
+                        "questions:answered-by:" + foundUser.getId(), () -> questionRepository.countAnsweredByAuthorId(foundUser.getId())));
+            return withCurrentVotes(questionRepository.findSummariesAnsweredBy(foundUser, pageable));
+        } catch (PropertyReferenceException | InvalidDataAccessApiUsageException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
     }
 
     @Override
-    public List<Question> getQuestionsAnsweredByUser(String username) {
+    @ReadFromReplica
+    public CursorPageDto<QuestionSummary> getQuestionsAnsweredByUser(String username, String after, Integer limit) {
         User foundUser = userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User " + username + " not found"));
-        return foundUser.getGivenAnswers().stream().map(Answer::getTargetQuestion).collect(Collectors.toList());
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<QuestionSummary> questions = questionRepository.findSummariesAnsweredByAfter(foundUser, cursor.getCreatedAt(), cursor.getId(), KeysetCursor.pageable(limit));
+        return KeysetCursor.page(withCurrentVotes(questions), limit, QuestionSummary::getCreatedAt, QuestionSummary::getId);
     }
 
+    /**
+     * Every question without a best answer, closed ones included. One author's open questions are listed by
+     * {@link #getUnresolved}.
+     */
     @Override
-    public List<Question> getWithoutBestAnswer(String username) {
-        return questionRepository.findAllByBestAnswerIsNull();
+    @ReadFromReplica
+    public List<QuestionSummary> getWithoutBestAnswer() {
+        return withCurrentVotes(questionRepository.findSummariesByBestAnswerIsNull());
     }
 
     @Override
-    public Page<Question> getWithoutBestAnswer(String username, Integer pageNum, Integer pageSize, String sortBy) {
+    @ReadFromReplica
+    public Slice<QuestionSummary> getWithoutBestAnswer(Integer pageNum, Integer pageSize, String sortBy, PageCount count) {
         Pageable pageable = PageRequest.of(pageNum, pageSize, Sort.by(sortBy));
         try {
-            return questionRepository.findAllByBestAnswerIsNull(pageable);
-        } catch (PropertyReferenceException exc) {
+            if (count == PageCount.NONE)
+                return withCurrentVotes(questionRepository.findSummarySliceByBestAnswerIsNull(pageable));
+            if (count == PageCount.APPROXIMATE)
+                return withCurrentVotes(approximateCounts.page(questionRepository.findSummarySliceByBestAnswerIsNull(pageable),
+                        "questions:without-best-answer", questionRepository::countByBestAnswerIsNull));
+            return withCurrentVotes(questionRepository.findSummariesByBestAnswerIsNull(pageable));
+        } catch (PropertyReferenceException | InvalidDataAccessApiUsageException exc) {
             throw new IncorrectPageableException(exc.getMessage());
         }
     }
 
     @Override
     @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question setBestAnswer(Integer questionId, Integer answerId) {
         Question foundQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
         Answer newBestAnswer = answerRepository.findById(answerId).orElseThrow(() -> new ResourceNotFoundException("Answer with id " + answerId + " not found"));
         Answer oldBestAnswer = foundQuestion.getBestAnswer();
-        oldBestAnswer.setIsBestAnswer(false);
+        if (oldBestAnswer != null) {
+            oldBestAnswer.setIsBestAnswer(false);
+            answerRepository.save(oldBestAnswer);
+            userStatsCounters.addAcceptedAnswer(authorId(oldBestAnswer), oldBestAnswer.getId(), -1);
+        }
         newBestAnswer.setIsBestAnswer(true);
         foundQuestion.setBestAnswer(newBestAnswer);
-        answerRepository.save(oldBestAnswer);
-        return questionRepository.save(foundQuestion);
+        userStatsCounters.addAcceptedAnswer(authorId(newBestAnswer), answerId, 1);
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(foundQuestion));
     }
 
     @Override
     @Transactional
+    @Retryable(value = ObjectOptimisticLockingFailureException.class, maxAttempts = 3, backoff = @Backoff(delay = 5, multiplier = 2))
     public Question unsetBestAnswer(Integer questionId) {
         Question foundQuestion = questionRepository.findById(questionId).orElseThrow(() -> new ResourceNotFoundException("Question with id " + questionId + " not found"));
         Answer bestAnswer = foundQuestion.getBestAnswer();
         foundQuestion.setBestAnswer(null);
         bestAnswer.setIsBestAnswer(false);
         answerRepository.save(bestAnswer);
-        return questionRepository.save(foundQuestion);
+        userStatsCounters.addAcceptedAnswer(authorId(bestAnswer), bestAnswer.getId(), -1);
+        return currentVoteCounts.merge(PostType.QUESTION, questionRepository.save(foundQuestion));
     }
 
     @Override
-    public List<Question> getNotClosed() {
-        return questionRepository.findAllByClosedAtIsNull();
+    @ReadFromReplica
+    public List<QuestionSummary> getHot(Integer limit) {
+        if (limit == null || limit < 1 || limit > MAX_HOT_LIMIT)
+            throw new IncorrectPageableException("Limit must be between 1 and " + MAX_HOT_LIMIT);
+        List<Integer> questionIds = hotQuestions.top(limit);
+        if (questionIds.isEmpty())
+            return List.of();
+        Map<Integer, QuestionSummary> questions = questionRepository.findSummariesByIdIn(questionIds).stream()
+                .collect(Collectors.toMap(QuestionSummary::getId, Function.identity()));
+        return withCurrentVotes(questionIds.stream()
+                .map(questions::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<TitleSuggestionDto> suggestTitles(String prefix, Integer limit) {
+        if (limit == null || limit < 1 || limit > MAX_SUGGESTION_LIMIT)
+            throw new IncorrectPageableException("Limit must be between 1 and " + MAX_SUGGESTION_LIMIT);
+        return titleSuggestions.suggest(prefix, limit);
+    }
+
+    /**
+     * Open questions without a best answer, oldest first, optionally narrowed to one author, a creation date
+     * range and questions nobody has answered yet. Without a date range the total is an approximate count kept per
+     * author; with one it is counted exactly, on the first page only.
+     */
+    @Override
+    @ReadFromReplica
+    public CursorPageDto<QuestionSummary> getUnresolved(String author, LocalDate from, LocalDate to, boolean unansweredOnly, String after, Integer limit) {
+        if (from != null && to != null && from.isAfter(to))
+            throw new CustomValidationException("Date range start " + from + " is after its end " + to);
+        Integer authorId = author == null ? null : userRepository.findByUsername(author)
+                .orElseThrow(() -> new ResourceNotFoundException("User " + author + " not found")).getId();
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        List<QuestionSummary> questions = findUnresolved(authorId, from, to, unansweredOnly, cursor, KeysetCursor.pageable(limit));
+        CursorPageDto<QuestionSummary> page = KeysetCursor.page(withCurrentVotes(questions), limit, QuestionSummary::getCreatedAt, QuestionSummary::getId);
+        if (from == null && to == null)
+            page.setTotal(approximateCounts.get("questions:unresolved:" + authorId + ":" + unansweredOnly,
+                    () -> countUnresolved(authorId, null, null, unansweredOnly)));
+        else if (after == null)
+            page.setTotal(countUnresolved(authorId, from, to, unansweredOnly));
+        return page;
+    }
+
+    /**
+     * Each combination of filters has its own query, so that none of them has to evaluate a predicate that is
+     * switched off by a parameter, and the per author ones can seek the author index.
+     */
+    private List<QuestionSummary> findUnresolved(Integer authorId, LocalDate from, LocalDate to, boolean unansweredOnly, KeysetCursor cursor, Pageable pageable) {
+        if (authorId == null)
+            return unansweredOnly ? questionRepository.findUnansweredSummariesAfter(from, to, cursor.getCreatedAt(), cursor.getId(), pageable)
+                    : questionRepository.findUnresolvedSummariesAfter(from, to, cursor.getCreatedAt(), cursor.getId(), pageable);
+        return unansweredOnly ? questionRepository.findUnansweredSummariesByAuthorIdAfter(authorId, from, to, cursor.getCreatedAt(), cursor.getId(), pageable)
+                : questionRepository.findUnresolvedSummariesByAuthorIdAfter(authorId, from, to, cursor.getCreatedAt(), cursor.getId(), pageable);
+    }
+
+    private long countUnresolved(Integer authorId, LocalDate from, LocalDate to, boolean unansweredOnly) {
+        if (authorId == null)
+            return unansweredOnly ? questionRepository.countUnanswered(from, to) : questionRepository.countUnresolved(from, to);
+        return unansweredOnly ? questionRepository.countUnansweredByAuthorId(authorId, from, to) : questionRepository.countUnresolvedByAuthorId(authorId, from, to);
+    }
+
+    @Override
+    @ReadFromReplica
+    public List<QuestionSummary> getNotClosed() {
+        return withCurrentVotes(questionRepository.findSummariesByClosedAtIsNull());
+    }
+
+    @Override
+    @Transactional
+    public void streamNotClosed(Consumer<QuestionSummary> consumer) {
+        resultStreamer.forEach(questionRepository.streamSummariesByClosedAtIsNull(), this::withCurrentVotes, consumer);
+    }
+
+    private Question questionCreated(Question question) {
+        hotQuestions.track(question.getId(), question.getCreatedAt(), question.getClosedAt());
+        searchIndex.indexQuestion(question.getId(), question.getTitle(), question.getContent());
+        titleSuggestions.put(question.getId(), question.getTitle());
+        userStatsCounters.addQuestion(question.getAuthor() == null ? null : question.getAuthor().getId(), question.getId(), 1);
+        return question;
+    }
+
+    static void checkClosingDate(Question question) {
+        if (question.getClosedAt() != null && question.getCreatedAt().isAfter(question.getClosedAt()))
+            throw new CustomValidationException("Question closing date cannot be before question creation date");
+    }
+
+    private static Integer authorId(Answer answer) {
+        return answer.getAuthor() == null ? null : answer.getAuthor().getId();
+    }
+
+    private <T extends Iterable<QuestionSummary>> T withCurrentVotes(T questions) {
+        return currentVoteCounts.mergeAll(PostType.QUESTION, questions);
     }
 }
@@ -0,0 +1,70 @@
+package spring.project.forum.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.projection.AnswerVersion;
+import spring.project.forum.model.projection.QuestionVersion;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Version of every question's rendered form, of the answers listed under it and of each answer, read from
+ * the database so that every instance hands out the same version for the same content, whichever instance
+ * changed it.
+ * <p>
+ * A question's version digests its version column, which any change to its own fields or best answer
+ * increments, its author's username, its vote counts including the shards not folded yet and the ids of
+ * its answers. The version of its answers digests the same for each answer. Votes still pending in this
+ * instance's write-behind buffer are rendered too, so they are part of the version as well.
+ */
+@Component
+public class QuestionVersions {
+
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    public QuestionVersions(QuestionRepository questionRepository, AnswerRepository answerRepository, VoteWriteBehindBuffer voteWriteBehindBuffer) {
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+    }
+
+    public String current(Integer questionId) {
+        StringBuilder state = new StringBuilder();
+        int[] pending = voteWriteBehindBuffer.pendingCounts(PostType.QUESTION, questionId);
+        for (QuestionVersion version : questionRepository.findVersionsById(questionId))
+            state.append(version.getVersion()).append(',').append(version.getAuthor()).append(',')
+                    .append(version.getUpVoteCount() + pending[0]).append(',').append(version.getDownVoteCount() + pending[1]).append(',')
+                    .append(version.getAnswerId()).append(';');
+        return digest(state);
+    }
+
+    public String currentAnswers(Integer questionId) {
+        StringBuilder state = new StringBuilder();
+        answerRepository.findVersionsByTargetQuestionId(questionId).forEach(version -> append(state, version));
+        return digest(state);
+    }
+
+    public String currentAnswer(Integer answerId) {
+        StringBuilder state = new StringBuilder();
+        answerRepository.findVersionById(answerId).ifPresent(version -> append(state, version));
+        return digest(state);
+    }
+
+    private void append(StringBuilder state, AnswerVersion version) {
+        state.append(version.getId()).append(',').append(version.getVersion()).append(',').append(version.getAuthor());
+        if (version.getId() != null) {
+            int[] pending = voteWriteBehindBuffer.pendingCounts(PostType.ANSWER, version.getId());
+            state.append(',').append(version.getUpVoteCount() + pending[0]).append(',').append(version.getDownVoteCount() + pending[1]);
+        }
+        state.append(';');
+    }
+
+    private static String digest(StringBuilder state) {
+        return DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,118 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.CacheRegionStatisticsDto;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of responses already serialized to JSON, keyed by resource id and the version the
+ * response was rendered at. A lookup only hits when the cached version is still the current one, so
+ * entries go stale as soon as the version read for them changes instead of being removed.
+ * <p>
+ * Entries are held least recently used first and evicted from that end as soon as the serialized bytes
+ * would exceed max-bytes. Misses are rendered in a read-only transaction so lazy associations serialize,
+ * reading past the second-level cache, which does not see changes made by other instances, so a response
+ * is never older than the version it is cached at.
+ */
+public class RenderedResponseCache {
+
+    private final String name;
+    private final long maxBytes;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RenderedResponseCache(String name, long maxBytes, ObjectMapper objectMapper, TransactionTemplate transactionTemplate, EntityManager entityManager) {
+        this.name = name;
+        this.maxBytes = maxBytes;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.transactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+    }
+
+    public byte[] get(Integer id, String version, Supplier<?> loader) {
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.version.equals(version)) {
+                hits.increment();
+                return entry.body;
+            }
+        }
+        misses.increment();
+        byte[] body = transactionTemplate.execute(status -> {
+            entityManager.setProperty("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+            entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.REFRESH);
+            return render(loader.get());
+        });
+        put(id, new Entry(version, body));
+        return body;
+    }
+
+    public CacheRegionStatisticsDto getStatistics() {
+        synchronized (this) {
+            return CacheRegionStatisticsDto.builder()
+                    .region(name)
+                    .hitCount(hits.sum())
+                    .missCount(misses.sum())
+                    .putCount(puts.sum())
+                    .evictionCount(evictions.sum())
+                    .elementCount((long) entries.size())
+                    .sizeInBytes(bytes)
+                    .build();
+        }
+    }
+
+    private synchronized void put(Integer id, Entry entry) {
+        if (entry.body.length > maxBytes)
+            return;
+        Entry replaced = entries.get(id);
+        if (replaced != null)
+            bytes -= replaced.body.length;
+        entries.put(id, entry);
+        bytes += entry.body.length;
+        puts.increment();
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().body.length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private byte[] render(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException exc) {
+            throw new IllegalStateException("Could not render " + name + " response", exc);
+        }
+    }
+
+    private static class Entry {
+        private final String version;
+        private final byte[] body;
+
+        private Entry(String version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
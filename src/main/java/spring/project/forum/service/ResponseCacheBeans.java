@@ -0,0 +1,19 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+@Configuration
+public class ResponseCacheBeans {
+
+    @Bean
+    RenderedResponseCache questionDetailCache(ObjectMapper objectMapper, TransactionTemplate transactionTemplate, EntityManager entityManager,
+                                              @Value("${forum.cache.question-detail.max-bytes:16777216}") long maxBytes) {
+        return new RenderedResponseCache("question-detail", maxBytes, objectMapper, transactionTemplate, entityManager);
+    }
+}
@@ -0,0 +1,61 @@
+package spring.project.forum.service;
+
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Hands the rows of a forward-only repository stream to a consumer one by one and clears the persistence
+ * context after every chunk, so that entities read earlier can be garbage collected while the stream goes on.
+ * Must be called inside a transaction.
+ */
+@Component
+public class ResultStreamer {
+
+    /**
+     * Same as the fetch size hint of the streaming repository queries.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    public ResultStreamer(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public <T> void forEach(Stream<T> rows, Consumer<? super T> consumer) {
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            int count = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % CHUNK_SIZE == 0)
+                    entityManager.clear();
+            }
+        }
+    }
+
+    /**
+     * Same, but every chunk is handed to chunkLoaded before its rows go to the consumer.
+     */
+    public <T> void forEach(Stream<T> rows, Consumer<? super List<T>> chunkLoaded, Consumer<? super T> consumer) {
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    chunkLoaded.accept(chunk);
+                    chunk.forEach(consumer);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
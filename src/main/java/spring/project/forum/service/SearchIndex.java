@@ -0,0 +1,243 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import spring.project.forum.api.v1.dto.SearchHitDto;
+import spring.project.forum.exception.CustomValidationException;
+import spring.project.forum.exception.IncorrectPageableException;
+import spring.project.forum.model.PostType;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text index over question titles and contents and answer contents. Text is tokenized and stemmed by
+ * the English analyzer and hits are ranked by BM25, with title matches weighted twice as much as content
+ * matches. Queries take all of their terms by default and accept "quoted phrases", | for alternatives and
+ * - for exclusions. Hits are counted exactly up to MAX_DEPTH, as deep as paging goes, which lets BM25 skip
+ * documents that cannot make it into the results; beyond that the total is a lower bound.
+ * <p>
+ * Every post is one document keyed by its type and id and tagged with the id of its question, so deleting a
+ * question drops its answers too. Creating, editing and deleting posts updates the index once the change
+ * commits; searches see the change after the next refresh, every refresh-interval-ms, and it reaches index-dir
+ * every commit-interval-ms. Searches only acquire the current searcher and never wait for a refresh. Without an
+ * index-dir the index lives in memory and is rebuilt from the database on every startup.
+ */
+@Slf4j
+@Component
+public class SearchIndex {
+
+    public static final int MAX_LIMIT = 100;
+    public static final int MAX_DEPTH = 1000;
+
+    private static final String KEY = "key";
+    private static final String TYPE = "type";
+    private static final String ID = "id";
+    private static final String QUESTION_ID = "questionId";
+    private static final String TITLE = "title";
+    private static final String CONTENT = "content";
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 2f, CONTENT, 1f);
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+
+    public SearchIndex(JdbcTemplate jdbcTemplate, @Value("${forum.search.index-dir:}") String indexDir) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        Directory directory = indexDir.isBlank() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(indexDir));
+        this.indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexIfEmpty() {
+        if (indexWriter.getDocStats().numDocs == 0)
+            reindex();
+    }
+
+    /**
+     * Drops the whole index and indexes every question and answer again.
+     */
+    public synchronized void reindex() {
+        try {
+            indexWriter.deleteAll();
+            stream("select id, title, content from question", resultSet ->
+                    write(question(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3))));
+            stream("select id, target_question_id, content from answer", resultSet ->
+                    write(answer(resultSet.getInt(1), resultSet.getInt(2), resultSet.getString(3))));
+            indexWriter.commit();
+            searcherManager.maybeRefreshBlocking();
+            log.info("Indexed {} posts for search", indexWriter.getDocStats().numDocs);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    public Page<SearchHitDto> search(String queryText, Integer pageNum, Integer pageSize) {
+        if (queryText == null || queryText.isBlank())
+            throw new CustomValidationException("Search query must not be empty");
+        if (pageNum < 0 || pageSize < 1 || pageSize > MAX_LIMIT || (pageNum + 1L) * pageSize > MAX_DEPTH)
+            throw new IncorrectPageableException("Search results are limited to the first " + MAX_DEPTH + " hits, at most " + MAX_LIMIT + " per page");
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopScoreDocCollector collector = TopScoreDocCollector.create((pageNum + 1) * pageSize, MAX_DEPTH);
+                searcher.search(query, collector);
+                List<SearchHitDto> hits = new ArrayList<>(pageSize);
+                for (ScoreDoc scoreDoc : collector.topDocs(pageNum * pageSize, pageSize).scoreDocs) {
+                    Document document = searcher.doc(scoreDoc.doc);
+                    hits.add(SearchHitDto.builder()
+                            .type(PostType.valueOf(document.get(TYPE)))
+                            .id(document.getField(ID).numericValue().intValue())
+                            .questionId(Integer.valueOf(document.get(QUESTION_ID)))
+                            .title(document.get(TITLE))
+                            .score(scoreDoc.score)
+                            .build());
+                }
+                return new PageImpl<>(hits, PageRequest.of(pageNum, pageSize), collector.getTotalHits());
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    public void indexQuestion(Integer questionId, String title, String content) {
+        AfterCommit.run(() -> write(question(questionId, title, content)));
+    }
+
+    public void indexAnswer(Integer answerId, Integer questionId, String content) {
+        AfterCommit.run(() -> write(answer(answerId, questionId, content)));
+    }
+
+    /**
+     * Removes the question together with all of its answers.
+     */
+    public void removeQuestion(Integer questionId) {
+        AfterCommit.run(() -> delete(new Term(QUESTION_ID, questionId.toString())));
+    }
+
+    public void removeAnswer(Integer answerId) {
+        AfterCommit.run(() -> delete(new Term(KEY, key(PostType.ANSWER, answerId))));
+    }
+
+    /**
+     * Makes the changes written since the last refresh visible to searches.
+     */
+    @Scheduled(fixedDelayString = "${forum.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException exc) {
+            log.warn("Could not refresh the search index", exc);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${forum.search.commit-interval-ms:5000}")
+    public void commit() {
+        try {
+            if (indexWriter.hasUncommittedChanges())
+                indexWriter.commit();
+        } catch (IOException exc) {
+            log.warn("Could not commit the search index", exc);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        indexWriter.getDirectory().close();
+    }
+
+    private void write(Document document) {
+        try {
+            indexWriter.updateDocument(new Term(KEY, document.get(KEY)), document);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private void delete(Term term) {
+        try {
+            indexWriter.deleteDocuments(term);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    private void stream(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private static Document question(Integer questionId, String title, String content) {
+        Document document = post(PostType.QUESTION, questionId, questionId, content);
+        if (title != null)
+            document.add(new TextField(TITLE, title, Field.Store.YES));
+        return document;
+    }
+
+    private static Document answer(Integer answerId, Integer questionId, String content) {
+        return post(PostType.ANSWER, answerId, questionId, content);
+    }
+
+    private static Document post(PostType type, Integer id, Integer questionId, String content) {
+        Document document = new Document();
+        document.add(new StringField(KEY, key(type, id), Field.Store.YES));
+        document.add(new StoredField(TYPE, type.name()));
+        document.add(new StoredField(ID, id));
+        document.add(new StringField(QUESTION_ID, questionId.toString(), Field.Store.YES));
+        if (content != null)
+            document.add(new TextField(CONTENT, content, Field.Store.NO));
+        return document;
+    }
+
+    private static String key(PostType type, Integer id) {
+        return type.name() + ":" + id;
+    }
+}
@@ -0,0 +1,339 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import spring.project.forum.api.v1.dto.CacheRegionStatisticsDto;
+import spring.project.forum.api.v1.dto.TitleSuggestionDto;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index over question titles for autocompletion. Titles are normalized (accents stripped, lower case,
+ * whitespace collapsed) and kept in sorted parallel arrays, so the titles starting with a prefix are one
+ * contiguous range found by binary search. A max segment tree over the scores picks the n highest scored
+ * titles of that range without walking it.
+ * <p>
+ * Creating, renaming and deleting a question copies the arrays with the title inserted or removed once the
+ * change commits; votes update a score in place under the write lock of the index. Lookups read optimistically
+ * and read again under the read lock when a vote got in between. The index is built from the database on startup.
+ */
+@Slf4j
+@Component
+public class TitleSuggestions {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Estimated heap taken by one title besides its strings: the array slots, two segment tree nodes and
+     * the id lookup entry.
+     */
+    private static final long ENTRY_BYTES = 4 + 4 + 4 + 4 + 2 * 4 + 48;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, String> titles = new HashMap<>();
+    private volatile Index index = new Index(new String[0], new String[0], new int[0], new int[0]);
+    private long stringBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TitleSuggestions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        titles.clear();
+        Map<Integer, Integer> scores = new HashMap<>();
+        jdbcTemplate.query("select q.id, q.title, " +
+                "q.score + (select coalesce(sum(c.up_vote_count - c.down_vote_count), 0) from question_vote_counter c where c.question_id = q.id) " +
+                "from question q where q.title is not null", resultSet -> {
+            titles.put(resultSet.getInt(1), resultSet.getString(2));
+            scores.put(resultSet.getInt(1), resultSet.getInt(3));
+        });
+        Integer[] order = titles.keySet().toArray(new Integer[0]);
+        String[] keys = new String[order.length];
+        Map<Integer, String> keysById = new HashMap<>(titles.size() * 2);
+        titles.forEach((questionId, title) -> keysById.put(questionId, key(title)));
+        Arrays.sort(order, Comparator.comparing((Integer questionId) -> keysById.get(questionId)).thenComparing(Comparator.naturalOrder()));
+        String[] sortedTitles = new String[order.length];
+        int[] ids = new int[order.length];
+        int[] sortedScores = new int[order.length];
+        stringBytes = 0;
+        for (int i = 0; i < order.length; i++) {
+            sortedTitles[i] = titles.get(order[i]);
+            keys[i] = keysById.get(order[i]).equals(sortedTitles[i]) ? sortedTitles[i] : keysById.get(order[i]);
+            ids[i] = order[i];
+            sortedScores[i] = scores.get(order[i]);
+            stringBytes += stringBytes(keys[i], sortedTitles[i]);
+        }
+        index = new Index(keys, sortedTitles, ids, sortedScores);
+        log.info("Indexed {} question titles for suggestions", ids.length);
+    }
+
+    /**
+     * The highest scored titles starting with the given prefix, ties broken alphabetically.
+     */
+    public List<TitleSuggestionDto> suggest(String prefix, int limit) {
+        Index current = index;
+        String key = key(prefix);
+        List<TitleSuggestionDto> suggestions = List.of();
+        if (!key.isEmpty()) {
+            long stamp = current.lock.tryOptimisticRead();
+            suggestions = current.suggest(key, limit);
+            if (!current.lock.validate(stamp)) {
+                stamp = current.lock.readLock();
+                try {
+                    suggestions = current.suggest(key, limit);
+                } finally {
+                    current.lock.unlockRead(stamp);
+                }
+            }
+        }
+        (suggestions.isEmpty() ? misses : hits).increment();
+        return suggestions;
+    }
+
+    public void put(Integer questionId, String title) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                int score = 0;
+                String replaced = titles.remove(questionId);
+                if (replaced != null) {
+                    score = index.scores[index.position(key(replaced), questionId)];
+                    remove(questionId, replaced);
+                }
+                if (title != null) {
+                    titles.put(questionId, title);
+                    insert(questionId, title, score);
+                }
+            }
+        });
+    }
+
+    public void remove(Integer questionId) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                String removed = titles.remove(questionId);
+                if (removed != null)
+                    remove(questionId, removed);
+            }
+        });
+    }
+
+    public void addVotes(Integer questionId, int scoreDelta) {
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                String title = titles.get(questionId);
+                if (title != null) {
+                    Index current = index;
+                    int position = current.position(key(title), questionId);
+                    current.setScore(position, current.scores[position] + scoreDelta);
+                }
+            }
+        });
+    }
+
+    /**
+     * Suggestion lookups that found or did not find a title, and the estimated heap taken by the index.
+     */
+    public synchronized CacheRegionStatisticsDto getStatistics() {
+        long elementCount = index.ids.length;
+        long sizeInBytes = stringBytes + elementCount * ENTRY_BYTES;
+        return CacheRegionStatisticsDto.builder()
+                .region("title-suggestions")
+                .hitCount(hits.sum())
+                .missCount(misses.sum())
+                .elementCount(elementCount)
+                .sizeInBytes(sizeInBytes)
+                .averageElementSizeInBytes(elementCount == 0 ? null : sizeInBytes / elementCount)
+                .build();
+    }
+
+    private void insert(Integer questionId, String title, int score) {
+        Index current = index;
+        String key = key(title);
+        int position = current.lowerBound(key, questionId);
+        int size = current.ids.length;
+        String[] keys = new String[size + 1];
+        String[] sortedTitles = new String[size + 1];
+        int[] ids = new int[size + 1];
+        int[] scores = new int[size + 1];
+        copyAround(current, position, 0, keys, sortedTitles, ids, scores, 1);
+        keys[position] = key.equals(title) ? title : key;
+        sortedTitles[position] = title;
+        ids[position] = questionId;
+        scores[position] = score;
+        stringBytes += stringBytes(keys[position], title);
+        index = new Index(keys, sortedTitles, ids, scores);
+    }
+
+    private void remove(Integer questionId, String title) {
+        Index current = index;
+        int position = current.position(key(title), questionId);
+        int size = current.ids.length;
+        String[] keys = new String[size - 1];
+        String[] sortedTitles = new String[size - 1];
+        int[] ids = new int[size - 1];
+        int[] scores = new int[size - 1];
+        stringBytes -= stringBytes(current.keys[position], current.titles[position]);
+        copyAround(current, position, 1, keys, sortedTitles, ids, scores, 0);
+        index = new Index(keys, sortedTitles, ids, scores);
+    }
+
+    /**
+     * Copies the entries before the position as they are and the ones from the position on shifted by the
+     * difference between the two offsets.
+     */
+    private static void copyAround(Index from, int position, int fromOffset, String[] keys, String[] titles, int[] ids, int[] scores, int toOffset) {
+        int tail = from.ids.length - position - fromOffset;
+        System.arraycopy(from.keys, 0, keys, 0, position);
+        System.arraycopy(from.keys, position + fromOffset, keys, position + toOffset, tail);
+        System.arraycopy(from.titles, 0, titles, 0, position);
+        System.arraycopy(from.titles, position + fromOffset, titles, position + toOffset, tail);
+        System.arraycopy(from.ids, 0, ids, 0, position);
+        System.arraycopy(from.ids, position + fromOffset, ids, position + toOffset, tail);
+        System.arraycopy(from.scores, 0, scores, 0, position);
+        System.arraycopy(from.scores, position + fromOffset, scores, position + toOffset, tail);
+    }
+
+    private static String key(String text) {
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT).strip()).replaceAll(" ");
+    }
+
+    /**
+     * Compact strings take a byte per character when all characters are Latin-1, otherwise two.
+     */
+    private static long stringBytes(String key, String title) {
+        long bytes = stringBytes(title);
+        return key == title ? bytes : bytes + stringBytes(key);
+    }
+
+    private static long stringBytes(String string) {
+        boolean latin1 = string.chars().allMatch(c -> c < 256);
+        return 40 + (long) string.length() * (latin1 ? 1 : 2);
+    }
+
+    /**
+     * Entries sorted by key, then id. best[n + i] is position i and every inner node best[j] holds the
+     * position of the highest score below it; scores and best only change under the write lock.
+     */
+    private static class Index {
+        private final String[] keys;
+        private final String[] titles;
+        private final int[] ids;
+        private final int[] scores;
+        private final int[] best;
+        private final StampedLock lock = new StampedLock();
+
+        private Index(String[] keys, String[] titles, int[] ids, int[] scores) {
+            this.keys = keys;
+            this.titles = titles;
+            this.ids = ids;
+            this.scores = scores;
+            int size = ids.length;
+            this.best = new int[2 * size];
+            for (int i = 0; i < size; i++)
+                best[size + i] = i;
+            for (int node = size - 1; node > 0; node--)
+                best[node] = better(best[2 * node], best[2 * node + 1]);
+        }
+
+        private int lowerBound(String key, int id) {
+            int low = 0;
+            int high = ids.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int comparison = keys[middle].compareTo(key);
+                if (comparison < 0 || comparison == 0 && ids[middle] < id)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+
+        private int position(String key, int id) {
+            int position = lowerBound(key, id);
+            if (position == ids.length || ids[position] != id)
+                throw new IllegalStateException("Question " + id + " is missing from the title index");
+            return position;
+        }
+
+        private List<TitleSuggestionDto> suggest(String key, int limit) {
+            List<TitleSuggestionDto> suggestions = new ArrayList<>(limit);
+            int from = lowerBound(key, Integer.MIN_VALUE);
+            int to = lowerBound(key + Character.MAX_VALUE, Integer.MIN_VALUE);
+            top(from, to, limit, position -> suggestions.add(TitleSuggestionDto.builder()
+                    .id(ids[position])
+                    .title(titles[position])
+                    .score(scores[position])
+                    .build()));
+            return suggestions;
+        }
+
+        private void setScore(int position, int score) {
+            long stamp = lock.writeLock();
+            try {
+                scores[position] = score;
+                for (int node = (position + ids.length) / 2; node > 0; node /= 2)
+                    best[node] = better(best[2 * node], best[2 * node + 1]);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Emits the limit highest scored positions in [from, to) by repeatedly taking the best position of a
+         * range and splitting the range around it.
+         */
+        private void top(int from, int to, int limit, IntConsumer consumer) {
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((first, second) -> better(first[2], second[2]) == first[2] ? -1 : 1);
+            if (from < to)
+                ranges.add(new int[]{from, to, best(from, to)});
+            for (int emitted = 0; emitted < limit && !ranges.isEmpty(); emitted++) {
+                int[] range = ranges.poll();
+                consumer.accept(range[2]);
+                if (range[0] < range[2])
+                    ranges.add(new int[]{range[0], range[2], best(range[0], range[2])});
+                if (range[2] + 1 < range[1])
+                    ranges.add(new int[]{range[2] + 1, range[1], best(range[2] + 1, range[1])});
+            }
+        }
+
+        private int best(int from, int to) {
+            int result = from;
+            for (int low = from + ids.length, high = to + ids.length; low < high; low /= 2, high /= 2) {
+                if ((low & 1) == 1)
+                    result = better(result, best[low++]);
+                if ((high & 1) == 1)
+                    result = better(result, best[--high]);
+            }
+            return result;
+        }
+
+        private int better(int first, int second) {
+            if (scores[first] != scores[second])
+                return scores[first] > scores[second] ? first : second;
+            return Math.min(first, second);
+        }
+    }
+}
@@ -3,13 +3,17 @@ package spring.project.forum.service;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import spring.project.forum.api.v1.dto.UserDto;
 import spring.project.forum.api.v1.dto.UserExcludePasswordDto;
+import spring.project.forum.api.v1.dto.UserStatsDto;
 import spring.project.forum.model.security.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService extends UserDetailsService {
     List<User> getAll();
 
+    void streamAll(Consumer<User> consumer);
+
     boolean checkUsernameAvailability(String username);
 
     User createUser(UserDto userDto);
@@ -21,4 +25,10 @@ public interface UserService extends UserDetailsService {
     void editUserPassword(String username, String newPassword);
 
     User getByUsername(String username);
+
+    String getVersion(String username);
+
+    String getVersionOfAll();
+
+    UserStatsDto getStats(String username);
 }
@@ -4,41 +4,99 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import spring.project.forum.api.v1.dto.UserDto;
 import spring.project.forum.api.v1.dto.UserExcludePasswordDto;
+import spring.project.forum.api.v1.dto.UserStatsDto;
 import spring.project.forum.api.v1.mapper.UserMapper;
+import spring.project.forum.datasource.ReadFromReplica;
 import spring.project.forum.exception.ResourceNotFoundException;
 import spring.project.forum.exception.UsernameAlreadyUsedException;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.projection.UserVersion;
 import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerVoteRepository;
+import spring.project.forum.repository.QuestionVoteRepository;
+import spring.project.forum.repository.UserStatsRepository;
 import spring.project.forum.repository.security.UserRepository;
 
+import javax.transaction.Transactional;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final QuestionVoteRepository questionVoteRepository;
+    private final AnswerVoteRepository answerVoteRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final VoterIndex voterIndex;
+    private final VoteCounters voteCounters;
+    private final ResultStreamer resultStreamer;
+    private final UserStatsCounters userStatsCounters;
+    private final UserStatsRepository userStatsRepository;
 
-    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(UserRepository userRepository, QuestionVoteRepository questionVoteRepository, AnswerVoteRepository answerVoteRepository, UserMapper userMapper, PasswordEncoder passwordEncoder, VoterIndex voterIndex, VoteCounters voteCounters, ResultStreamer resultStreamer, UserStatsCounters userStatsCounters, UserStatsRepository userStatsRepository) {
         this.userRepository = userRepository;
+        this.questionVoteRepository = questionVoteRepository;
+        this.answerVoteRepository = answerVoteRepository;
         this.userMapper = userMapper;
         this.passwordEncoder = passwordEncoder;
+        this.voterIndex = voterIndex;
+        this.voteCounters = voteCounters;
+        this.resultStreamer = resultStreamer;
+        this.userStatsCounters = userStatsCounters;
+        this.userStatsRepository = userStatsRepository;
     }
 
     @Override
+    @ReadFromReplica
     public List<User> getAll() {
         return userRepository.findAll();
     }
 
     @Override
+    @Transactional
+    public void streamAll(Consumer<User> consumer) {
+        resultStreamer.forEach(userRepository.streamAll(), consumer);
+    }
+
+    @Override
+    @ReadFromReplica
     public User getByUsername(String username) {
         return userRepository.findByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User with username " + username + " not found"));
     }
 
+    /**
+     * Read from the same database as the user, and before it, so a response is never tagged with a version
+     * newer than its body. The version counts changes to the user's posts, the username is taken as it is.
+     */
+    @Override
+    @ReadFromReplica
+    public String getVersion(String username) {
+        return userRepository.findVersionByUsername(username).map(UserServiceImpl::version).orElse("");
+    }
+
+    @Override
+    @ReadFromReplica
+    public String getVersionOfAll() {
+        StringBuilder versions = new StringBuilder();
+        userRepository.findAllVersions().forEach(version -> versions.append(version(version)).append(';'));
+        return DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
     @Override
+    @ReadFromReplica
+    public UserStatsDto getStats(String username) {
+        return userStatsRepository.findStatsByUsername(username).orElseThrow(() -> new ResourceNotFoundException("User with username " + username + " not found"));
+    }
+
+    @Override
+    @ReadFromReplica
     public boolean checkUsernameAvailability(String username) {
         return !userRepository.existsByUsername(username);
     }
@@ -56,6 +114,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public void deleteUser(String username) {
         Optional<User> userOptional = userRepository.findByUsername(username);
         if (userOptional.isEmpty())
@@ -65,14 +124,17 @@ public class UserServiceImpl implements UserService {
         user.setAskedQuestions(null);
         user.getGivenAnswers().forEach(answer -> answer.setAuthor(null));
         user.setGivenAnswers(null);
-        user.getUpVotedQuestions().forEach(question -> question.getUpVotes().remove(user));
-        user.setUpVotedQuestions(null);
-        user.getDownVotedQuestions().forEach(question -> question.getDownVotes().remove(user));
-        user.setDownVotedQuestions(null);
-        user.getUpVotedAnswers().forEach(answer -> answer.getUpVotes().remove(user));
-        user.setUpVotedAnswers(null);
-        user.getDownVotedAnswers().forEach(answer -> answer.getDownVotes().remove(user));
-        user.setDownVotedAnswers(null);
+        questionVoteRepository.findAllByIdUserId(user.getId()).forEach(vote -> {
+            voteCounters.add(PostType.QUESTION, vote.getId().getPostId(), user.getId(), -vote.getType().getUpDelta(), -vote.getType().getDownDelta());
+            voterIndex.record(PostType.QUESTION, vote.getId().getPostId(), user.getId(), null);
+        });
+        questionVoteRepository.deleteAllByUserId(user.getId());
+        answerVoteRepository.findAllByIdUserId(user.getId()).forEach(vote -> {
+            voteCounters.add(PostType.ANSWER, vote.getId().getPostId(), user.getId(), -vote.getType().getUpDelta(), -vote.getType().getDownDelta());
+            voterIndex.record(PostType.ANSWER, vote.getId().getPostId(), user.getId(), null);
+        });
+        answerVoteRepository.deleteAllByUserId(user.getId());
+        userStatsCounters.removeUser(user.getId());
         userRepository.delete(userRepository.save(user));
     }
 
@@ -97,4 +159,8 @@ public class UserServiceImpl implements UserService {
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
     }
+
+    private static String version(UserVersion version) {
+        return version.getId() + "-" + version.getVersion() + "-" + version.getUsername();
+    }
 }
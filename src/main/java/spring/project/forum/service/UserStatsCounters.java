@@ -0,0 +1,235 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.model.PostType;
+import spring.project.forum.repository.UserStatsRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the materialized statistics of every user in step with their posts: questions and answers written,
+ * answers accepted, votes received and the reputation they add up to. Every change is applied in the
+ * transaction of the post, vote or best-answer change causing it, so the stats never disagree with the
+ * committed posts. The stats are built from the posts on startup when none exist yet.
+ * <p>
+ * Writing, moving or removing a post also increments the version of the users it is given to or taken
+ * from, as the posts a user wrote are part of what the user renders to.
+ */
+@Slf4j
+@Component
+public class UserStatsCounters {
+
+    public static final int QUESTION_UP_VOTE_REPUTATION = 5;
+    public static final int ANSWER_UP_VOTE_REPUTATION = 10;
+    public static final int DOWN_VOTE_REPUTATION = -2;
+    public static final int ACCEPTED_ANSWER_REPUTATION = 15;
+
+    private final UserStatsRepository userStatsRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+
+    public UserStatsCounters(UserStatsRepository userStatsRepository,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${forum.votes.counter-shards:8}") int shards) {
+        this.userStatsRepository = userStatsRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (userStatsRepository.count() == 0)
+            rebuild();
+    }
+
+    /**
+     * Recomputes the statistics of all users from their posts, their vote counts and the votes not folded into them yet.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from user_stats");
+            List<Object[]> rows = new ArrayList<>();
+            jdbcTemplate.query("select u.id, " +
+                    "(select count(*) from question q where q.author_id = u.id), " +
+                    "(select count(*) from answer a where a.author_id = u.id), " +
+                    "(select count(*) from answer a where a.author_id = u.id and a.is_best_answer = true), " +
+                    "(select coalesce(sum(q.up_vote_count), 0) from question q where q.author_id = u.id) + " +
+                    "(select coalesce(sum(c.up_vote_count), 0) from question_vote_counter c join question q on q.id = c.question_id where q.author_id = u.id), " +
+                    "(select coalesce(sum(q.down_vote_count), 0) from question q where q.author_id = u.id) + " +
+                    "(select coalesce(sum(c.down_vote_count), 0) from question_vote_counter c join question q on q.id = c.question_id where q.author_id = u.id), " +
+                    "(select coalesce(sum(a.up_vote_count), 0) from answer a where a.author_id = u.id) + " +
+                    "(select coalesce(sum(c.up_vote_count), 0) from answer_vote_counter c join answer a on a.id = c.answer_id where a.author_id = u.id), " +
+                    "(select coalesce(sum(a.down_vote_count), 0) from answer a where a.author_id = u.id) + " +
+                    "(select coalesce(sum(c.down_vote_count), 0) from answer_vote_counter c join answer a on a.id = c.answer_id where a.author_id = u.id) " +
+                    "from user u", resultSet -> {
+                int accepted = resultSet.getInt(4);
+                int questionUpVotes = resultSet.getInt(5);
+                int answerUpVotes = resultSet.getInt(7);
+                int downVotes = resultSet.getInt(6) + resultSet.getInt(8);
+                int reputation = questionUpVotes * QUESTION_UP_VOTE_REPUTATION + answerUpVotes * ANSWER_UP_VOTE_REPUTATION
+                        + downVotes * DOWN_VOTE_REPUTATION + accepted * ACCEPTED_ANSWER_REPUTATION;
+                rows.add(new Object[]{resultSet.getInt(1), resultSet.getInt(2), resultSet.getInt(3), accepted,
+                        questionUpVotes + answerUpVotes, downVotes, reputation});
+            });
+            jdbcTemplate.batchUpdate("insert into user_stats (user_id, shard, question_count, answer_count, accepted_answer_count, " +
+                    "up_votes_received, down_votes_received, reputation) values (?, 0, ?, ?, ?, ?, ?, ?)", rows);
+            log.info("Built statistics of {} users", rows.size());
+        });
+    }
+
+    public void addQuestion(Integer authorId, Integer questionId, int sign) {
+        if (authorId == null)
+            return;
+        add(authorId, questionId, sign, 0, 0, 0, 0, 0);
+        incrementVersion(authorId);
+    }
+
+    public void addAnswer(Integer authorId, Integer answerId, int sign) {
+        if (authorId == null)
+            return;
+        add(authorId, answerId, 0, sign, 0, 0, 0, 0);
+        incrementVersion(authorId);
+    }
+
+    public void addAcceptedAnswer(Integer authorId, Integer answerId, int sign) {
+        if (authorId != null)
+            add(authorId, answerId, 0, 0, sign, 0, 0, sign * ACCEPTED_ANSWER_REPUTATION);
+    }
+
+    /**
+     * Credits a vote change to the author of the post without loading it. The shard is picked by voter,
+     * as for the post's own counters.
+     */
+    public void addVotesReceived(PostType postType, Integer postId, Integer voterId, int upDelta, int downDelta) {
+        String postTable = postType.name().toLowerCase();
+        int shard = Math.floorMod(voterId, shards);
+        int reputation = reputation(postType, upDelta, downDelta);
+        String update = "update user_stats set up_votes_received = up_votes_received + ?, down_votes_received = down_votes_received + ?, " +
+                "reputation = reputation + ? where user_id = (select author_id from " + postTable + " where id = ?) and shard = ?";
+        if (jdbcTemplate.update(update, upDelta, downDelta, reputation, postId, shard) == 0
+                && jdbcTemplate.update("insert into user_stats (user_id, shard, question_count, answer_count, accepted_answer_count, " +
+                "up_votes_received, down_votes_received, reputation) select p.author_id, ?, 0, 0, 0, ?, ?, ? from " + postTable + " p " +
+                "where p.id = ? and p.author_id is not null and not exists (select 1 from user_stats s where s.user_id = p.author_id and s.shard = ?)",
+                shard, upDelta, downDelta, reputation, postId, shard) == 0)
+            jdbcTemplate.update(update, upDelta, downDelta, reputation, postId, shard);
+    }
+
+    /**
+     * Batch form for the write-behind flush, keyed by post id with {up, down} deltas. Uses shard 0 like
+     * the flushed post counters. Rows are created like in the single vote form: inserted only if still
+     * absent, and updated again when another writer created them first.
+     */
+    public void addVotesReceived(PostType postType, Map<Integer, int[]> deltas) {
+        String postTable = postType.name().toLowerCase();
+        List<Object[]> args = new ArrayList<>();
+        deltas.forEach((postId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0)
+                args.add(new Object[]{delta[0], delta[1], reputation(postType, delta[0], delta[1]), postId});
+        });
+        String update = "update user_stats set up_votes_received = up_votes_received + ?, down_votes_received = down_votes_received + ?, " +
+                "reputation = reputation + ? where user_id = (select author_id from " + postTable + " where id = ?) and shard = 0";
+        List<Object[]> missingArgs = BatchResults.unapplied(args, jdbcTemplate.batchUpdate(update, args));
+        List<Object[]> raceArgs = BatchResults.unapplied(missingArgs, jdbcTemplate.batchUpdate("insert into user_stats (user_id, shard, question_count, " +
+                "answer_count, accepted_answer_count, up_votes_received, down_votes_received, reputation) select p.author_id, 0, 0, 0, 0, ?, ?, ? " +
+                "from " + postTable + " p where p.id = ? and p.author_id is not null " +
+                "and not exists (select 1 from user_stats s where s.user_id = p.author_id and s.shard = 0)", missingArgs));
+        jdbcTemplate.batchUpdate(update, raceArgs);
+    }
+
+    /**
+     * Batch form for bulk imports, keyed by author id with {questions, answers, accepted answers} deltas.
+     * Uses shard 0 like the batch vote form.
+     */
+    public void addPosts(Map<Integer, int[]> deltas) {
+        deltas.forEach((authorId, delta) -> {
+            add(authorId, 0, delta[0], delta[1], delta[2], 0, 0, delta[2] * ACCEPTED_ANSWER_REPUTATION);
+            if (delta[0] != 0 || delta[1] != 0)
+                incrementVersion(authorId);
+        });
+    }
+
+    /**
+     * Takes everything the posts earned their current authors away from them, before the posts are deleted.
+     */
+    public void removePosts(PostType postType, Collection<Integer> postIds) {
+        for (Integer postId : postIds)
+            contribution(postType, postId, (authorId, accepted, upVotes, downVotes) ->
+                    transfer(postType, postId, authorId, -1, accepted, upVotes, downVotes));
+    }
+
+    /**
+     * Moves everything a post earned from its old author to its new one.
+     */
+    public void moveAuthor(PostType postType, Integer postId, Integer oldAuthorId, Integer newAuthorId) {
+        if (oldAuthorId == null ? newAuthorId == null : oldAuthorId.equals(newAuthorId))
+            return;
+        contribution(postType, postId, (ignored, accepted, upVotes, downVotes) -> {
+            transfer(postType, postId, oldAuthorId, -1, accepted, upVotes, downVotes);
+            transfer(postType, postId, newAuthorId, 1, accepted, upVotes, downVotes);
+        });
+    }
+
+    public void removeUser(Integer userId) {
+        userStatsRepository.deleteAllByUserId(userId);
+    }
+
+    private void contribution(PostType postType, Integer postId, Contribution consumer) {
+        String postTable = postType.name().toLowerCase();
+        String accepted = postType == PostType.ANSWER ? "case when p.is_best_answer = true then 1 else 0 end" : "0";
+        jdbcTemplate.query("select p.author_id, " + accepted + ", " +
+                "p.up_vote_count + (select coalesce(sum(c.up_vote_count), 0) from " + postTable + "_vote_counter c where c." + postTable + "_id = p.id), " +
+                "p.down_vote_count + (select coalesce(sum(c.down_vote_count), 0) from " + postTable + "_vote_counter c where c." + postTable + "_id = p.id) " +
+                "from " + postTable + " p where p.id = ?", resultSet -> {
+            Integer authorId = (Integer) resultSet.getObject(1);
+            consumer.accept(authorId, resultSet.getInt(2), resultSet.getInt(3), resultSet.getInt(4));
+        }, postId);
+    }
+
+    private void transfer(PostType postType, Integer postId, Integer authorId, int sign, int accepted, int upVotes, int downVotes) {
+        if (authorId == null)
+            return;
+        int reputation = reputation(postType, upVotes, downVotes) + accepted * ACCEPTED_ANSWER_REPUTATION;
+        add(authorId, postId, postType == PostType.QUESTION ? sign : 0, postType == PostType.ANSWER ? sign : 0,
+                sign * accepted, sign * upVotes, sign * downVotes, sign * reputation);
+        incrementVersion(authorId);
+    }
+
+    /**
+     * Only written here, so users loaded before the change can still be merged.
+     */
+    private void incrementVersion(Integer userId) {
+        jdbcTemplate.update("update user set version = version + 1 where id = ?", userId);
+    }
+
+    private void add(Integer userId, Integer postId, int questions, int answers, int acceptedAnswers, int upVotes, int downVotes, int reputation) {
+        add(userId, Math.floorMod(postId, shards), questions, answers, acceptedAnswers, upVotes, downVotes, reputation);
+    }
+
+    private void add(Integer userId, int shard, int questions, int answers, int acceptedAnswers, int upVotes, int downVotes, int reputation) {
+        if (userStatsRepository.applyDelta(userId, shard, questions, answers, acceptedAnswers, upVotes, downVotes, reputation) == 0
+                && userStatsRepository.insertStatsIfAbsent(userId, shard, questions, answers, acceptedAnswers, upVotes, downVotes, reputation) == 0)
+            userStatsRepository.applyDelta(userId, shard, questions, answers, acceptedAnswers, upVotes, downVotes, reputation);
+    }
+
+    private static int reputation(PostType postType, int upVotes, int downVotes) {
+        return upVotes * (postType == PostType.QUESTION ? QUESTION_UP_VOTE_REPUTATION : ANSWER_UP_VOTE_REPUTATION)
+                + downVotes * DOWN_VOTE_REPUTATION;
+    }
+
+    @FunctionalInterface
+    private interface Contribution {
+        void accept(Integer authorId, int accepted, int upVotes, int downVotes);
+    }
+}
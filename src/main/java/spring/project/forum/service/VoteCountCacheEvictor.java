@@ -0,0 +1,53 @@
+package spring.project.forum.service;
+
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import spring.project.forum.model.Answer;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.Question;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+
+/**
+ * Drops cached questions, answers and query results whose votes were written or folded by plain JDBC, which
+ * Hibernate does not see.
+ */
+@Component
+public class VoteCountCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public VoteCountCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * For vote counts and counters written by plain JDBC, which Hibernate does not see at all. Must be called
+     * after commit.
+     */
+    public void evictAfterJdbcWrite(PostType postType, Collection<Integer> postIds) {
+        if (postIds.isEmpty())
+            return;
+        evictPosts(postType, postIds);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    public void evictQueryResults() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    public void evictAll() {
+        Cache cache = entityManagerFactory.getCache();
+        cache.evict(Question.class);
+        cache.evict(Answer.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    private void evictPosts(PostType postType, Collection<Integer> postIds) {
+        Cache cache = entityManagerFactory.getCache();
+        Class<?> entityClass = postType == PostType.QUESTION ? Question.class : Answer.class;
+        postIds.forEach(postId -> cache.evict(entityClass, postId));
+    }
+}
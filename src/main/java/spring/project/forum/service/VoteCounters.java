@@ -0,0 +1,196 @@
+package spring.project.forum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.model.PostType;
+import spring.project.forum.repository.AnswerVoteCounterRepository;
+import spring.project.forum.repository.QuestionVoteCounterRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Writes vote count deltas to the sharded question/answer vote counters. The shard is picked from
+ * the voter id, so votes of different users on the same post update different rows and do not
+ * wait on each other's row locks. Shard rows are created on first use.
+ * <p>
+ * The vote count columns of the posts only change when the shards are folded into them every
+ * counter-fold-interval-ms, so the counts that are served add the shards not folded yet, see
+ * {@link CurrentVoteCounts}. A fold moves votes from the shards to the columns without changing their sum,
+ * so it leaves those counts as they were; only cached query results that order or filter by the columns
+ * are dropped after it.
+ */
+@Component
+public class VoteCounters {
+
+    private static final int MAX_COUNTER_WRITE_ATTEMPTS = 3;
+
+    private final QuestionVoteCounterRepository questionVoteCounterRepository;
+    private final AnswerVoteCounterRepository answerVoteCounterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VoteCountCacheEvictor voteCountCacheEvictor;
+    private final HotQuestions hotQuestions;
+    private final TitleSuggestions titleSuggestions;
+    private final UserStatsCounters userStatsCounters;
+    private final int shards;
+    private final boolean foldEnabled;
+    private final int foldBatchSize;
+
+    public VoteCounters(QuestionVoteCounterRepository questionVoteCounterRepository,
+                        AnswerVoteCounterRepository answerVoteCounterRepository,
+                        JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        VoteCountCacheEvictor voteCountCacheEvictor,
+                        HotQuestions hotQuestions,
+                        TitleSuggestions titleSuggestions,
+                        UserStatsCounters userStatsCounters,
+                        @Value("${forum.votes.counter-shards:8}") int shards,
+                        @Value("${forum.votes.counter-fold-enabled:true}") boolean foldEnabled,
+                        @Value("${forum.votes.counter-fold-batch-size:100}") int foldBatchSize) {
+        this.questionVoteCounterRepository = questionVoteCounterRepository;
+        this.answerVoteCounterRepository = answerVoteCounterRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.voteCountCacheEvictor = voteCountCacheEvictor;
+        this.hotQuestions = hotQuestions;
+        this.titleSuggestions = titleSuggestions;
+        this.userStatsCounters = userStatsCounters;
+        this.shards = shards;
+        this.foldEnabled = foldEnabled;
+        this.foldBatchSize = foldBatchSize;
+    }
+
+    public void add(PostType postType, Integer postId, Integer voterId, int upDelta, int downDelta) {
+        if (upDelta == 0 && downDelta == 0)
+            return;
+        int shard = Math.floorMod(voterId, shards);
+        if (postType == PostType.QUESTION) {
+            applyDelta(postType, postId, () -> questionVoteCounterRepository.applyVoteDelta(postId, shard, upDelta, downDelta),
+                    () -> questionVoteCounterRepository.insertCounterIfAbsent(postId, shard, upDelta, downDelta));
+            hotQuestions.addVotes(postId, upDelta - downDelta);
+            titleSuggestions.addVotes(postId, upDelta - downDelta);
+        } else
+            applyDelta(postType, postId, () -> answerVoteCounterRepository.applyVoteDelta(postId, shard, upDelta, downDelta),
+                    () -> answerVoteCounterRepository.insertCounterIfAbsent(postId, shard, upDelta, downDelta));
+        userStatsCounters.addVotesReceived(postType, postId, voterId, upDelta, downDelta);
+    }
+
+    /**
+     * Batch form for votes written by plain JDBC, keyed by post id with {up, down} deltas. Everything goes to
+     * shard 0 and the caches are left to the caller, which has to evict them once the batch has committed.
+     * Rows are locked in post id order, the order the fold locks them in. Rows a fold deleted meanwhile are
+     * tried again, as in {@link #add}.
+     *
+     * @throws DataIntegrityViolationException when a counter row is still missing after the last attempt
+     */
+    public void addAll(PostType postType, Map<Integer, int[]> deltas) {
+        String postTable = postType.name().toLowerCase();
+        String counterTable = postTable + "_vote_counter";
+        String postColumn = postTable + "_id";
+        List<Object[]> counterArgs = new ArrayList<>();
+        new TreeMap<>(deltas).forEach((postId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0)
+                counterArgs.add(new Object[]{delta[0], delta[1], postId});
+        });
+        String applyDelta = "update " + counterTable + " set up_vote_count = up_vote_count + ?, " +
+                "down_vote_count = down_vote_count + ? where " + postColumn + " = ? and shard = 0";
+        String insertCounter = "insert into " + counterTable + " (" + postColumn + ", shard, up_vote_count, down_vote_count) " +
+                "select ?, 0, ?, ? from dual where not exists (select 1 from " + counterTable + " where " + postColumn + " = ? and shard = 0)";
+        List<Object[]> pendingArgs = counterArgs;
+        for (int attempt = 0; attempt < MAX_COUNTER_WRITE_ATTEMPTS && !pendingArgs.isEmpty(); attempt++) {
+            List<Object[]> missingCounterArgs = BatchResults.unapplied(pendingArgs, jdbcTemplate.batchUpdate(applyDelta, pendingArgs));
+            List<Object[]> insertArgs = new ArrayList<>(missingCounterArgs.size());
+            missingCounterArgs.forEach(args -> insertArgs.add(new Object[]{args[2], args[0], args[1], args[2]}));
+            pendingArgs = BatchResults.unapplied(missingCounterArgs, jdbcTemplate.batchUpdate(insertCounter, insertArgs));
+        }
+        if (!pendingArgs.isEmpty())
+            throw new DataIntegrityViolationException("Vote counters of " + pendingArgs.size() + " " + postTable + "s kept being removed while adding votes");
+        userStatsCounters.addVotesReceived(postType, deltas);
+    }
+
+    /**
+     * Moves the votes counted in the shards into the vote count columns of their posts and drops the shard rows
+     * that are left at zero. Posts are folded counter-fold-batch-size at a time, each batch in its own short
+     * transaction that read locks the shard rows of that post id range only, so votes on other posts never
+     * wait for it. A fold running at the same time waits and then finds the rows emptied. They are taken down
+     * by what was read rather than reset, so votes counted while the fold runs stay in them for the next one.
+     * <p>
+     * Folding on every instance is correct but only adds lock waits, so counter-fold-enabled should be left on
+     * for a single instance.
+     */
+    @Scheduled(fixedDelayString = "${forum.votes.counter-fold-interval-ms:1000}")
+    public void fold() {
+        if (!foldEnabled)
+            return;
+        for (PostType postType : PostType.values()) {
+            String postColumn = postType.name().toLowerCase() + "_id";
+            List<Integer> postIds = jdbcTemplate.queryForList("select distinct " + postColumn + " from " +
+                    postType.name().toLowerCase() + "_vote_counter order by " + postColumn, Integer.class);
+            for (int from = 0; from < postIds.size(); from += foldBatchSize) {
+                Integer firstPostId = postIds.get(from);
+                Integer lastPostId = postIds.get(Math.min(from + foldBatchSize, postIds.size()) - 1);
+                transactionTemplate.executeWithoutResult(status -> fold(postType, firstPostId, lastPostId));
+            }
+            if (!postIds.isEmpty())
+                voteCountCacheEvictor.evictQueryResults();
+        }
+    }
+
+    public void removeQuestion(Integer questionId) {
+        answerVoteCounterRepository.deleteAllByQuestionId(questionId);
+        questionVoteCounterRepository.deleteAllByQuestionId(questionId);
+    }
+
+    public void removeAnswer(Integer answerId) {
+        answerVoteCounterRepository.deleteAllByAnswerId(answerId);
+    }
+
+    private void fold(PostType postType, Integer firstPostId, Integer lastPostId) {
+        String postTable = postType.name().toLowerCase();
+        String counterTable = postTable + "_vote_counter";
+        String postColumn = postTable + "_id";
+        List<Object[]> shardArgs = new ArrayList<>();
+        Map<Integer, int[]> postDeltas = new TreeMap<>();
+        jdbcTemplate.query("select " + postColumn + ", shard, up_vote_count, down_vote_count from " + counterTable +
+                " where " + postColumn + " between ? and ? order by " + postColumn + ", shard for update", resultSet -> {
+            int[] delta = postDeltas.computeIfAbsent(resultSet.getInt(1), postId -> new int[2]);
+            delta[0] += resultSet.getInt(3);
+            delta[1] += resultSet.getInt(4);
+            shardArgs.add(new Object[]{resultSet.getInt(3), resultSet.getInt(4), resultSet.getInt(1), resultSet.getInt(2)});
+        }, firstPostId, lastPostId);
+        if (shardArgs.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate("update " + counterTable + " set up_vote_count = up_vote_count - ?, " +
+                "down_vote_count = down_vote_count - ? where " + postColumn + " = ? and shard = ?", shardArgs);
+        List<Object[]> emptyShardArgs = new ArrayList<>(shardArgs.size());
+        shardArgs.forEach(args -> emptyShardArgs.add(new Object[]{args[2], args[3]}));
+        jdbcTemplate.batchUpdate("delete from " + counterTable + " where " + postColumn + " = ? and shard = ? " +
+                "and up_vote_count = 0 and down_vote_count = 0", emptyShardArgs);
+        List<Object[]> postArgs = new ArrayList<>(postDeltas.size());
+        postDeltas.forEach((postId, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0)
+                postArgs.add(new Object[]{delta[0], delta[1], delta[0] - delta[1], postId});
+        });
+        jdbcTemplate.batchUpdate("update " + postTable + " set up_vote_count = up_vote_count + ?, " +
+                "down_vote_count = down_vote_count + ?, score = score + ? where id = ?", postArgs);
+    }
+
+    /**
+     * Neither statement applies when a fold deletes the counter row in between, so both are tried again. A vote
+     * that still finds no row is failed with a DataIntegrityViolationException, which the voting services retry.
+     */
+    private static void applyDelta(PostType postType, Integer postId, IntSupplier update, IntSupplier insertIfAbsent) {
+        for (int attempt = 0; attempt < MAX_COUNTER_WRITE_ATTEMPTS; attempt++)
+            if (update.getAsInt() > 0 || insertIfAbsent.getAsInt() > 0)
+                return;
+        throw new DataIntegrityViolationException("Vote counter of " + postType.name().toLowerCase() + " id " + postId + " kept being removed while voting");
+    }
+}
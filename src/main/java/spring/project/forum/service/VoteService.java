@@ -0,0 +1,10 @@
+package spring.project.forum.service;
+
+import spring.project.forum.api.v1.dto.VoteBatchItemDto;
+import spring.project.forum.api.v1.dto.VoteBatchResultDto;
+
+import java.util.List;
+
+public interface VoteService {
+    List<VoteBatchResultDto> applyBatch(List<VoteBatchItemDto> votes);
+}
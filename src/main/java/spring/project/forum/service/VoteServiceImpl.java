@@ -0,0 +1,97 @@
+package spring.project.forum.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import spring.project.forum.api.v1.dto.VoteBatchItemDto;
+import spring.project.forum.api.v1.dto.VoteBatchResultDto;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.projection.VoteCounts;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.transaction.Transactional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class VoteServiceImpl implements VoteService {
+
+    private final QuestionService questionService;
+    private final AnswerService answerService;
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+    private final UserRepository userRepository;
+    private final VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    public VoteServiceImpl(QuestionService questionService, AnswerService answerService, QuestionRepository questionRepository, AnswerRepository answerRepository, UserRepository userRepository, VoteWriteBehindBuffer voteWriteBehindBuffer) {
+        this.questionService = questionService;
+        this.answerService = answerService;
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.userRepository = userRepository;
+        this.voteWriteBehindBuffer = voteWriteBehindBuffer;
+    }
+
+    @Override
+    @Transactional
+    @Retryable(value = DataIntegrityViolationException.class, maxAttempts = 5, backoff = @Backoff(delay = 5, multiplier = 2))
+    public List<VoteBatchResultDto> applyBatch(List<VoteBatchItemDto> votes) {
+        User voter = userRepository.findByUsername(((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getUsername()).get();
+        Set<Integer> questionIds = existing(postIds(votes, PostType.QUESTION), questionRepository::findIdsByIdIn);
+        Set<Integer> answerIds = existing(postIds(votes, PostType.ANSWER), answerRepository::findIdsByIdIn);
+
+        List<VoteBatchResultDto> results = new ArrayList<>(votes.size());
+        for (VoteBatchItemDto vote : votes) {
+            VoteBatchResultDto result = VoteBatchResultDto.builder()
+                    .postType(vote.getPostType())
+                    .postId(vote.getPostId())
+                    .state(vote.getState())
+                    .build();
+            if (vote.getPostType() == PostType.QUESTION && questionIds.contains(vote.getPostId())) {
+                questionService.applyVote(vote.getPostId(), voter, vote.getState());
+                result.setApplied(true);
+            } else if (vote.getPostType() == PostType.ANSWER && answerIds.contains(vote.getPostId())) {
+                answerService.applyVote(vote.getPostId(), voter, vote.getState());
+                result.setApplied(true);
+            } else {
+                result.setApplied(false);
+                result.setError((vote.getPostType() == PostType.QUESTION ? "Question" : "Answer") + " with id " + vote.getPostId() + " not found");
+            }
+            results.add(result);
+        }
+
+        Map<Integer, VoteCounts> questionCounts = questionIds.isEmpty() ? Map.of() : byId(questionRepository.findVoteCountsByIdIn(questionIds));
+        Map<Integer, VoteCounts> answerCounts = answerIds.isEmpty() ? Map.of() : byId(answerRepository.findVoteCountsByIdIn(answerIds));
+        for (VoteBatchResultDto result : results) {
+            if (!result.getApplied())
+                continue;
+            VoteCounts voteCounts = (result.getPostType() == PostType.QUESTION ? questionCounts : answerCounts).get(result.getPostId());
+            int[] pending = voteWriteBehindBuffer.pendingCounts(result.getPostType(), result.getPostId());
+            result.setUpVoteCount(voteCounts.getUpVoteCount() + pending[0]);
+            result.setDownVoteCount(voteCounts.getDownVoteCount() + pending[1]);
+            result.setScore(voteCounts.getScore() + pending[0] - pending[1]);
+        }
+        return results;
+    }
+
+    private static Set<Integer> postIds(List<VoteBatchItemDto> votes, PostType postType) {
+        return votes.stream()
+                .filter(vote -> vote.getPostType() == postType)
+                .map(VoteBatchItemDto::getPostId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Integer> existing(Set<Integer> postIds, Function<Set<Integer>, List<Integer>> findIds) {
+        return postIds.isEmpty() ? Set.of() : new HashSet<>(findIds.apply(postIds));
+    }
+
+    private static Map<Integer, VoteCounts> byId(List<VoteCounts> voteCounts) {
+        return voteCounts.stream().collect(Collectors.toMap(VoteCounts::getId, Function.identity()));
+    }
+}
@@ -0,0 +1,337 @@
+package spring.project.forum.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.exception.VotingException;
+import spring.project.forum.model.*;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerVoteRepository;
+import spring.project.forum.repository.QuestionVoteRepository;
+
+import javax.annotation.PreDestroy;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Write-behind mode for votes, enabled with forum.votes.write-behind.enabled.
+ * <p>
+ * Votes are kept in memory as the latest vote state per (post, user) plus a LongAdder pair per post
+ * holding the not yet persisted up/down deltas. Pending state is written to the vote ledger and to
+ * shard 0 of the vote counters in JDBC batches every flush-interval-ms, as soon as max-pending votes have
+ * accumulated, and once more on shutdown. A generation that is being flushed stays visible to
+ * readers until its transaction has committed. Hot questions and title suggestions only take the votes in once
+ * they are, and only those the flush actually wrote to the ledger.
+ */
+@Slf4j
+@Component
+public class VoteWriteBehindBuffer {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QuestionVoteRepository questionVoteRepository;
+    private final AnswerVoteRepository answerVoteRepository;
+    private final VoteCountCacheEvictor voteCountCacheEvictor;
+    private final HotQuestions hotQuestions;
+    private final TitleSuggestions titleSuggestions;
+    private final VoteCounters voteCounters;
+    private final boolean enabled;
+    private final int maxPending;
+
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vote-write-behind-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Generation current = new Generation();
+    private volatile Generation flushing;
+
+    public VoteWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 QuestionVoteRepository questionVoteRepository,
+                                 AnswerVoteRepository answerVoteRepository,
+                                 VoteCountCacheEvictor voteCountCacheEvictor,
+                                 HotQuestions hotQuestions,
+                                 TitleSuggestions titleSuggestions,
+                                 VoteCounters voteCounters,
+                                 @Value("${forum.votes.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${forum.votes.write-behind.max-pending:5000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.questionVoteRepository = questionVoteRepository;
+        this.answerVoteRepository = answerVoteRepository;
+        this.voteCountCacheEvictor = voteCountCacheEvictor;
+        this.hotQuestions = hotQuestions;
+        this.titleSuggestions = titleSuggestions;
+        this.voteCounters = voteCounters;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void vote(PostType postType, Integer postId, User voter, VoteType voteType) {
+        record(postType, postId, voter.getId(), currentType -> {
+            if (currentType == voteType)
+                throw new VotingException("User " + voter.getUsername() + " already " + voteType.name().toLowerCase() + "voted " + postType.name().toLowerCase() + " id " + postId);
+            return voteType;
+        });
+    }
+
+    public void unVote(PostType postType, Integer postId, User voter, VoteType voteType) {
+        record(postType, postId, voter.getId(), currentType -> {
+            if (currentType != voteType)
+                throw new VotingException("User " + voter.getUsername() + " haven't " + voteType.name().toLowerCase() + "voted " + postType.name().toLowerCase() + " id " + postId);
+            return null;
+        });
+    }
+
+    public void setVote(PostType postType, Integer postId, User voter, VoteType voteType) {
+        record(postType, postId, voter.getId(), currentType -> voteType);
+    }
+
+    public int[] pendingCounts(PostType postType, Integer postId) {
+        int[] pending = new int[2];
+        if (!enabled)
+            return pending;
+        PostKey postKey = new PostKey(postType, postId);
+        for (Generation generation : new Generation[]{current, flushing}) {
+            if (generation == null)
+                continue;
+            PendingCounts counts = generation.counts.get(postKey);
+            if (counts != null) {
+                pending[0] += counts.up.intValue();
+                pending[1] += counts.down.intValue();
+            }
+        }
+        return pending;
+    }
+
+    private void record(PostType postType, Integer postId, Integer userId, UnaryOperator<VoteType> transition) {
+        VoteKey voteKey = new VoteKey(new PostKey(postType, postId), userId);
+        generationLock.readLock().lock();
+        try {
+            Generation generation = current;
+            VoteType persistedType = generation.votes.containsKey(voteKey) ? null : persistedType(voteKey);
+            generation.votes.compute(voteKey, (key, pendingVote) -> {
+                if (pendingVote == null)
+                    pendingVote = new PendingVote(persistedType);
+                VoteType oldType = pendingVote.type;
+                VoteType newType = transition.apply(oldType);
+                pendingVote.type = newType;
+                generation.counts.computeIfAbsent(key.post, postKey -> new PendingCounts()).add(oldType, newType);
+                return pendingVote;
+            });
+        } finally {
+            generationLock.readLock().unlock();
+        }
+        if (current.votes.size() >= maxPending && flushRequested.compareAndSet(false, true))
+            flushExecutor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushRequested.set(false);
+                }
+            });
+    }
+
+    private VoteType persistedType(VoteKey voteKey) {
+        Generation flushingGeneration = flushing;
+        if (flushingGeneration != null) {
+            PendingVote flushingVote = flushingGeneration.votes.get(voteKey);
+            if (flushingVote != null)
+                return flushingVote.type;
+        }
+        VoteId voteId = new VoteId(voteKey.userId, voteKey.post.postId);
+        if (voteKey.post.postType == PostType.QUESTION)
+            return questionVoteRepository.findById(voteId).map(QuestionVote::getType).orElse(null);
+        return answerVoteRepository.findById(voteId).map(AnswerVote::getType).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${forum.votes.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (!enabled)
+            return;
+        Generation flushed;
+        generationLock.writeLock().lock();
+        try {
+            if (current.votes.isEmpty())
+                return;
+            flushed = current;
+            flushing = flushed;
+            current = new Generation();
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        try {
+            Map<PostType, Map<Integer, int[]>> countedDeltas = new EnumMap<>(PostType.class);
+            transactionTemplate.executeWithoutResult(status -> {
+                countedDeltas.put(PostType.QUESTION, write(PostType.QUESTION, flushed));
+                countedDeltas.put(PostType.ANSWER, write(PostType.ANSWER, flushed));
+            });
+            countedDeltas.forEach((postType, deltas) -> voteCountCacheEvictor.evictAfterJdbcWrite(postType, deltas.keySet()));
+            countedDeltas.get(PostType.QUESTION).forEach((postId, delta) -> {
+                hotQuestions.addVotes(postId, delta[0] - delta[1]);
+                titleSuggestions.addVotes(postId, delta[0] - delta[1]);
+            });
+            flushing = null;
+            log.debug("Flushed {} pending votes", flushed.votes.size());
+        } catch (RuntimeException exc) {
+            log.error("Flushing {} pending votes failed, keeping them for the next attempt", flushed.votes.size(), exc);
+            generationLock.writeLock().lock();
+            try {
+                current.absorb(flushed);
+                flushing = null;
+            } finally {
+                generationLock.writeLock().unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdown();
+        flush();
+    }
+
+    /**
+     * Returns the {up, down} deltas counted per post, only for the votes whose ledger rows were actually written.
+     */
+    private Map<Integer, int[]> write(PostType postType, Generation generation) {
+        String postTable = postType.name().toLowerCase();
+        String voteTable = postTable + "_vote";
+        String postColumn = postTable + "_id";
+
+        List<Map.Entry<VoteKey, PendingVote>> inserts = new ArrayList<>();
+        List<Map.Entry<VoteKey, PendingVote>> updates = new ArrayList<>();
+        List<Map.Entry<VoteKey, PendingVote>> deletes = new ArrayList<>();
+        for (Map.Entry<VoteKey, PendingVote> entry : generation.votes.entrySet()) {
+            PendingVote pendingVote = entry.getValue();
+            if (entry.getKey().post.postType != postType || pendingVote.type == pendingVote.persistedType)
+                continue;
+            if (pendingVote.persistedType == null)
+                inserts.add(entry);
+            else if (pendingVote.type == null)
+                deletes.add(entry);
+            else
+                updates.add(entry);
+        }
+
+        Map<Integer, int[]> deltas = new HashMap<>();
+        int[] insertResults = jdbcTemplate.batchUpdate(
+                "insert into " + voteTable + " (user_id, " + postColumn + ", vote_type) " +
+                        "select u.id, p.id, ? from " + postTable + " p join user u on u.id = ? where p.id = ? " +
+                        "and not exists (select 1 from " + voteTable + " where user_id = ? and " + postColumn + " = ?)",
+                toArgs(inserts, vote -> new Object[]{vote.getValue().type.name(), vote.getKey().userId, vote.getKey().post.postId, vote.getKey().userId, vote.getKey().post.postId}));
+        collectDeltas(inserts, insertResults, deltas);
+        int[] updateResults = jdbcTemplate.batchUpdate(
+                "update " + voteTable + " set vote_type = ? where user_id = ? and " + postColumn + " = ? and vote_type = ?",
+                toArgs(updates, vote -> new Object[]{vote.getValue().type.name(), vote.getKey().userId, vote.getKey().post.postId, vote.getValue().persistedType.name()}));
+        collectDeltas(updates, updateResults, deltas);
+        int[] deleteResults = jdbcTemplate.batchUpdate(
+                "delete from " + voteTable + " where user_id = ? and " + postColumn + " = ? and vote_type = ?",
+                toArgs(deletes, vote -> new Object[]{vote.getKey().userId, vote.getKey().post.postId, vote.getValue().persistedType.name()}));
+        collectDeltas(deletes, deleteResults, deltas);
+
+        voteCounters.addAll(postType, deltas);
+        return deltas;
+    }
+
+    private static List<Object[]> toArgs(List<Map.Entry<VoteKey, PendingVote>> votes, Function<Map.Entry<VoteKey, PendingVote>, Object[]> mapper) {
+        List<Object[]> args = new ArrayList<>(votes.size());
+        votes.forEach(vote -> args.add(mapper.apply(vote)));
+        return args;
+    }
+
+    private static void collectDeltas(List<Map.Entry<VoteKey, PendingVote>> votes, int[] results, Map<Integer, int[]> deltas) {
+        for (int i = 0; i < votes.size(); i++) {
+            if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
+                continue;
+            PendingVote pendingVote = votes.get(i).getValue();
+            int[] delta = deltas.computeIfAbsent(votes.get(i).getKey().post.postId, postId -> new int[2]);
+            delta[0] += upVotes(pendingVote.type) - upVotes(pendingVote.persistedType);
+            delta[1] += downVotes(pendingVote.type) - downVotes(pendingVote.persistedType);
+        }
+    }
+
+    private static int upVotes(VoteType voteType) {
+        return voteType == null ? 0 : voteType.getUpDelta();
+    }
+
+    private static int downVotes(VoteType voteType) {
+        return voteType == null ? 0 : voteType.getDownDelta();
+    }
+
+    private static class Generation {
+        private final ConcurrentHashMap<VoteKey, PendingVote> votes = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<PostKey, PendingCounts> counts = new ConcurrentHashMap<>();
+
+        private void absorb(Generation older) {
+            older.votes.forEach((key, olderVote) -> votes.merge(key, olderVote, (newerVote, ignored) -> {
+                newerVote.persistedType = olderVote.persistedType;
+                return newerVote;
+            }));
+            older.counts.forEach((key, olderCounts) -> {
+                PendingCounts newerCounts = counts.computeIfAbsent(key, postKey -> new PendingCounts());
+                newerCounts.up.add(olderCounts.up.sum());
+                newerCounts.down.add(olderCounts.down.sum());
+            });
+        }
+    }
+
+    private static class PendingVote {
+        private volatile VoteType persistedType;
+        private volatile VoteType type;
+
+        private PendingVote(VoteType persistedType) {
+            this.persistedType = persistedType;
+            this.type = persistedType;
+        }
+    }
+
+    private static class PendingCounts {
+        private final LongAdder up = new LongAdder();
+        private final LongAdder down = new LongAdder();
+
+        private void add(VoteType oldType, VoteType newType) {
+            int upDelta = upVotes(newType) - upVotes(oldType);
+            int downDelta = downVotes(newType) - downVotes(oldType);
+            if (upDelta != 0)
+                up.add(upDelta);
+            if (downDelta != 0)
+                down.add(downDelta);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class PostKey {
+        private final PostType postType;
+        private final Integer postId;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class VoteKey {
+        private final PostKey post;
+        private final Integer userId;
+    }
+}
@@ -0,0 +1,105 @@
+package spring.project.forum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.VoteType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of who voted on which post, kept as one pair of compressed bitmaps of voter
+ * user ids per post. Answers "has this user voted" without reading the vote ledger.
+ * Changes made inside a transaction are applied once it commits.
+ */
+@Slf4j
+@Component
+public class VoterIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Map<PostType, ConcurrentHashMap<Integer, PostVoters>> voters = emptyIndex();
+
+    public VoterIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<PostType, ConcurrentHashMap<Integer, PostVoters>> rebuilt = emptyIndex();
+        for (PostType postType : PostType.values()) {
+            String postTable = postType.name().toLowerCase();
+            ConcurrentHashMap<Integer, PostVoters> postVoters = rebuilt.get(postType);
+            jdbcTemplate.query("select " + postTable + "_id, user_id, vote_type from " + postTable + "_vote", resultSet -> {
+                postVoters.computeIfAbsent(resultSet.getInt(1), postId -> new PostVoters())
+                        .set(resultSet.getInt(2), VoteType.valueOf(resultSet.getString(3)));
+            });
+            postVoters.values().forEach(PostVoters::optimize);
+            log.info("Indexed voters of {} {}s", postVoters.size(), postTable);
+        }
+        voters = rebuilt;
+    }
+
+    public void record(PostType postType, Integer postId, Integer userId, VoteType voteType) {
+        AfterCommit.run(() -> voters.get(postType).computeIfAbsent(postId, id -> new PostVoters()).set(userId, voteType));
+    }
+
+    public void removePost(PostType postType, Integer postId) {
+        AfterCommit.run(() -> voters.get(postType).remove(postId));
+    }
+
+    public VoteState stateOf(PostType postType, Integer postId, Integer userId) {
+        PostVoters postVoters = voters.get(postType).get(postId);
+        return postVoters == null ? VoteState.NONE : postVoters.stateOf(userId);
+    }
+
+    public Map<Integer, VoteState> statesOf(PostType postType, Collection<Integer> postIds, Integer userId) {
+        Map<Integer, VoteState> states = new LinkedHashMap<>();
+        postIds.forEach(postId -> states.put(postId, stateOf(postType, postId, userId)));
+        return states;
+    }
+
+    private static Map<PostType, ConcurrentHashMap<Integer, PostVoters>> emptyIndex() {
+        Map<PostType, ConcurrentHashMap<Integer, PostVoters>> index = new EnumMap<>(PostType.class);
+        for (PostType postType : PostType.values())
+            index.put(postType, new ConcurrentHashMap<>());
+        return index;
+    }
+
+    private static class PostVoters {
+        private final RoaringBitmap upVoters = new RoaringBitmap();
+        private final RoaringBitmap downVoters = new RoaringBitmap();
+
+        private synchronized void set(int userId, VoteType voteType) {
+            if (voteType == VoteType.UP)
+                upVoters.add(userId);
+            else
+                upVoters.remove(userId);
+            if (voteType == VoteType.DOWN)
+                downVoters.add(userId);
+            else
+                downVoters.remove(userId);
+        }
+
+        private synchronized VoteState stateOf(int userId) {
+            if (upVoters.contains(userId))
+                return VoteState.UP;
+            if (downVoters.contains(userId))
+                return VoteState.DOWN;
+            return VoteState.NONE;
+        }
+
+        private synchronized void optimize() {
+            upVoters.runOptimize();
+            downVoters.runOptimize();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Every entity takes its ids from its own sequence, handed out 50 at a time, instead of the shared
+-- hibernate_sequence. A pooled generator reading n hands out the ids n - 49 to n, so each sequence starts 50 past
+-- the highest id already in use.
+
+create sequence answer_seq start with 1 increment by 50;
+alter sequence answer_seq restart with (select coalesce(max(id), 0) + 50 from answer);
+create sequence authority_seq start with 1 increment by 50;
+alter sequence authority_seq restart with (select coalesce(max(id), 0) + 50 from authority);
+create sequence question_seq start with 1 increment by 50;
+alter sequence question_seq restart with (select coalesce(max(id), 0) + 50 from question);
+create sequence user_seq start with 1 increment by 50;
+alter sequence user_seq restart with (select coalesce(max(id), 0) + 50 from user);
+
+drop sequence hibernate_sequence;
@@ -0,0 +1,32 @@
+-- The schema as Hibernate auto-DDL last created it, before Flyway managed it. Databases that already hold these
+-- tables are baselined at this version instead of running it, and every later version migrates them forward.
+
+create table answer (id integer not null, content longtext, created_at date, is_best_answer bit,
+    author_id integer, target_question_id integer, primary key (id)) engine=InnoDB;
+create table authority (id integer not null, name varchar(255), primary key (id)) engine=InnoDB;
+create table hibernate_sequence (next_val bigint) engine=InnoDB;
+insert into hibernate_sequence values (1);
+create table question (id integer not null, closed_at date, content longtext, created_at date, title varchar(255),
+    author_id integer, best_answer_id integer, primary key (id)) engine=InnoDB;
+create table user (id integer not null, account_non_expired bit not null, account_non_locked bit not null,
+    credentials_non_expired bit not null, enabled bit not null, password varchar(255), username varchar(255), primary key (id)) engine=InnoDB;
+create table user_authority (user_id integer not null, authority_id integer not null) engine=InnoDB;
+create table user_downvotedanswer (answer_id integer not null, user_id integer not null) engine=InnoDB;
+create table user_downvotedquestion (question_id integer not null, user_id integer not null) engine=InnoDB;
+create table user_upvotedanswer (answer_id integer not null, user_id integer not null) engine=InnoDB;
+create table user_upvotedquestion (question_id integer not null, user_id integer not null) engine=InnoDB;
+
+alter table answer add constraint FK75xv8m6341bb4ufdcbvmxgpc5 foreign key (author_id) references user (id);
+alter table answer add constraint FK2511dwufmjyu5h3ktvh5w6xms foreign key (target_question_id) references question (id);
+alter table question add constraint FKopjh5j15w8itrk1q316o5055y foreign key (author_id) references user (id);
+alter table question add constraint FKtdfl33v8xw8g2ca93qliq1edi foreign key (best_answer_id) references answer (id);
+alter table user_authority add constraint FKgvxjs381k6f48d5d2yi11uh89 foreign key (authority_id) references authority (id);
+alter table user_authority add constraint FKpqlsjpkybgos9w2svcri7j8xy foreign key (user_id) references user (id);
+alter table user_downvotedanswer add constraint FK8xhiy0hohwhyi19eogctkg954 foreign key (answer_id) references answer (id);
+alter table user_downvotedanswer add constraint FKo09n7bovm0hyp450xmnerdu1t foreign key (user_id) references user (id);
+alter table user_downvotedquestion add constraint FKeaer6lep6kntbnpcy6k7n0biq foreign key (question_id) references question (id);
+alter table user_downvotedquestion add constraint FK2jty51wi7h0b2j26wcndwrmfq foreign key (user_id) references user (id);
+alter table user_upvotedanswer add constraint FKed6yhl2pewp2p2xyepis8p16 foreign key (answer_id) references answer (id);
+alter table user_upvotedanswer add constraint FK9rd39s1mardb7xgf1uibl25bh foreign key (user_id) references user (id);
+alter table user_upvotedquestion add constraint FKjq1cw2p7jt7t445o9mrkw37ra foreign key (question_id) references question (id);
+alter table user_upvotedquestion add constraint FKr2afj23gikl009tx1dibjx3h3 foreign key (user_id) references user (id);
@@ -0,0 +1,46 @@
+-- One row per vote in question_vote / answer_vote, with the totals kept in sharded counter rows, replaces the
+-- user_upvoted / user_downvoted join tables. A user found in both join tables of a post keeps the up vote.
+
+create table answer_vote (answer_id integer not null, user_id integer not null, vote_type varchar(4) not null,
+    primary key (answer_id, user_id)) engine=InnoDB;
+create table answer_vote_counter (answer_id integer not null, shard integer not null, down_vote_count integer not null,
+    up_vote_count integer not null, primary key (answer_id, shard)) engine=InnoDB;
+create table question_vote (question_id integer not null, user_id integer not null, vote_type varchar(4) not null,
+    primary key (question_id, user_id)) engine=InnoDB;
+create table question_vote_counter (question_id integer not null, shard integer not null, down_vote_count integer not null,
+    up_vote_count integer not null, primary key (question_id, shard)) engine=InnoDB;
+
+alter table answer_vote add constraint FKp422lmglrcvet69832dmygyx8 foreign key (answer_id) references answer (id);
+alter table answer_vote add constraint FKr3bv3xpsvax64ohnh6brghm7b foreign key (user_id) references user (id);
+alter table answer_vote_counter add constraint FK5j8e1ftr7wnnysx0f9tnmdm1m foreign key (answer_id) references answer (id);
+alter table question_vote add constraint FKast4xiggbs08xfqm2oltcl32l foreign key (question_id) references question (id);
+alter table question_vote add constraint FKicx5hewik43l3hj7tucp2s56u foreign key (user_id) references user (id);
+alter table question_vote_counter add constraint FK6oxsjey8dsypcvqfjl39g8yx7 foreign key (question_id) references question (id);
+
+-- Optimistic locking of concurrent edits.
+alter table question add column version integer default 0 not null;
+alter table answer add column version integer default 0 not null;
+
+insert into question_vote (question_id, user_id, vote_type)
+    select distinct question_id, user_id, 'UP' from user_upvotedquestion;
+insert into question_vote (question_id, user_id, vote_type)
+    select distinct l.question_id, l.user_id, 'DOWN' from user_downvotedquestion l
+    where not exists (select 1 from question_vote v where v.question_id = l.question_id and v.user_id = l.user_id);
+insert into answer_vote (answer_id, user_id, vote_type)
+    select distinct answer_id, user_id, 'UP' from user_upvotedanswer;
+insert into answer_vote (answer_id, user_id, vote_type)
+    select distinct l.answer_id, l.user_id, 'DOWN' from user_downvotedanswer l
+    where not exists (select 1 from answer_vote v where v.answer_id = l.answer_id and v.user_id = l.user_id);
+
+-- Every total starts in shard 0; votes cast from now on spread over the other shards.
+insert into question_vote_counter (question_id, shard, up_vote_count, down_vote_count)
+    select question_id, 0, sum(case when vote_type = 'UP' then 1 else 0 end), sum(case when vote_type = 'DOWN' then 1 else 0 end)
+    from question_vote group by question_id;
+insert into answer_vote_counter (answer_id, shard, up_vote_count, down_vote_count)
+    select answer_id, 0, sum(case when vote_type = 'UP' then 1 else 0 end), sum(case when vote_type = 'DOWN' then 1 else 0 end)
+    from answer_vote group by answer_id;
+
+drop table user_upvotedquestion;
+drop table user_downvotedquestion;
+drop table user_upvotedanswer;
+drop table user_downvotedanswer;
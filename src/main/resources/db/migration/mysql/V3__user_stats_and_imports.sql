@@ -0,0 +1,11 @@
+-- Per-user statistics in sharded rows, filled from the posts and votes on the first startup that finds them empty,
+-- and the bookkeeping that lets an interrupted content import resume.
+
+create table user_stats (shard integer not null, user_id integer not null, accepted_answer_count integer not null, answer_count integer not null,
+    down_votes_received integer not null, question_count integer not null, reputation integer not null, up_votes_received integer not null,
+    primary key (shard, user_id)) engine=InnoDB;
+alter table user_stats add constraint FKh7w0kxe92n5s3h2jbs1cfqx9c foreign key (user_id) references user (id);
+
+create table import_checkpoint (name varchar(255) not null, line bigint not null, primary key (name)) engine=InnoDB;
+create table import_reference (import_name varchar(255) not null, legacy_id varchar(255) not null, post_type varchar(8) not null,
+    post_id integer not null, primary key (import_name, legacy_id, post_type)) engine=InnoDB;
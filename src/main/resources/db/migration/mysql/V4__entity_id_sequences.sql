@@ -0,0 +1,14 @@
+-- Every entity takes its ids from its own table-backed sequence, handed out 50 at a time, instead of the shared
+-- hibernate_sequence. A pooled generator reading n hands out the ids n - 49 to n, so each sequence starts 50 past
+-- the highest id already in use.
+
+create table answer_seq (next_val bigint) engine=InnoDB;
+insert into answer_seq select coalesce(max(id), 0) + 50 from answer;
+create table authority_seq (next_val bigint) engine=InnoDB;
+insert into authority_seq select coalesce(max(id), 0) + 50 from authority;
+create table question_seq (next_val bigint) engine=InnoDB;
+insert into question_seq select coalesce(max(id), 0) + 50 from question;
+create table user_seq (next_val bigint) engine=InnoDB;
+insert into user_seq select coalesce(max(id), 0) + 50 from user;
+
+drop table hibernate_sequence;
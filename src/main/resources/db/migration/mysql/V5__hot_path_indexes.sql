@@ -0,0 +1,38 @@
+-- Indexes for the paged and keyset-paginated listings, and for the lookups that are not already served by the
+-- leading columns of another index or primary key. The vote tables and counters are keyed by post first.
+
+-- The answers of a question and the questions of an author, newest first, and the questions a user answered.
+create index idx_answer_question_created_at_id on answer (target_question_id, created_at, id);
+create index idx_answer_author_question on answer (author_id, target_question_id);
+create index idx_question_created_at_id on question (created_at, id);
+create index idx_question_author_created_at_id on question (author_id, created_at, id);
+
+-- The unresolved queue, overall and per author.
+create index idx_question_unresolved_created_at_id on question (closed_at, best_answer_id, created_at, id);
+create index idx_question_author_unresolved_created_at_id on question (author_id, closed_at, best_answer_id, created_at, id);
+
+-- Best answer joins, the unanswered-question filters and the foreign key to answer.
+create index idx_question_best_answer on question (best_answer_id);
+
+-- Login, signup and every lookup by username. Nothing stopped two signups from taking the same name before, so
+-- all but the oldest account of a name get the name suffixed with their id first.
+create table duplicate_username as
+    select u.id from user u where exists (select 1 from user o where o.username = u.username and o.id < u.id);
+update user set username = concat(left(username, 240), '#', id) where id in (select id from duplicate_username);
+drop table duplicate_username;
+alter table user add constraint uk_user_username unique (username);
+
+-- A user's votes, read when they are shown and deleted with the user.
+create index idx_question_vote_user on question_vote (user_id);
+create index idx_answer_vote_user on answer_vote (user_id);
+
+-- The statistics of one user, summed over its shards.
+create index idx_user_stats_user on user_stats (user_id);
+
+-- The authorities of a user are loaded with it; the pair is the natural key of the join table. Granting an
+-- authority twice could store a second row, so the rows are made distinct first.
+create table distinct_user_authority as select distinct user_id, authority_id from user_authority;
+delete from user_authority;
+insert into user_authority (user_id, authority_id) select user_id, authority_id from distinct_user_authority;
+drop table distinct_user_authority;
+alter table user_authority add primary key (user_id, authority_id);
@@ -0,0 +1,23 @@
+-- Posts carry their vote counts in columns that every read takes as they are. Votes still go to the sharded
+-- counter rows, which are folded into these columns on a schedule, so the rows only hold the votes cast since.
+
+alter table question add column up_vote_count integer default 0 not null;
+alter table question add column down_vote_count integer default 0 not null;
+alter table question add column score integer default 0 not null;
+alter table answer add column up_vote_count integer default 0 not null;
+alter table answer add column down_vote_count integer default 0 not null;
+alter table answer add column score integer default 0 not null;
+
+update question set
+    up_vote_count = (select coalesce(sum(c.up_vote_count), 0) from question_vote_counter c where c.question_id = question.id),
+    down_vote_count = (select coalesce(sum(c.down_vote_count), 0) from question_vote_counter c where c.question_id = question.id),
+    score = (select coalesce(sum(c.up_vote_count - c.down_vote_count), 0) from question_vote_counter c where c.question_id = question.id)
+    where exists (select 1 from question_vote_counter c where c.question_id = question.id);
+update answer set
+    up_vote_count = (select coalesce(sum(c.up_vote_count), 0) from answer_vote_counter c where c.answer_id = answer.id),
+    down_vote_count = (select coalesce(sum(c.down_vote_count), 0) from answer_vote_counter c where c.answer_id = answer.id),
+    score = (select coalesce(sum(c.up_vote_count - c.down_vote_count), 0) from answer_vote_counter c where c.answer_id = answer.id)
+    where exists (select 1 from answer_vote_counter c where c.answer_id = answer.id);
+
+delete from question_vote_counter;
+delete from answer_vote_counter;
@@ -0,0 +1,4 @@
+-- Users carry a version of the posts they wrote, which tags their rendered form together with their
+-- username. It is incremented whenever a question or answer is written by, moved to or taken from the user.
+
+alter table user add column version integer default 0 not null;
@@ -0,0 +1,138 @@
+package spring.project.forum.api.v1.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import spring.project.forum.api.v1.dto.AnswerDto;
+import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionDto;
+import spring.project.forum.model.Question;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.service.AnswerService;
+import spring.project.forum.service.QuestionService;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polling a question, its answers, an answer or a user with the last ETag gets a 304 until what it renders to changes,
+ * whichever instance changed it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalGetTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    AnswerService answerService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void questionIsNotModifiedUntilItChanges() throws Exception {
+        Integer questionId = questionRepository.save(Question.builder().title("polled question").createdAt(LocalDate.now()).build()).getId();
+        String url = "/api/questions/" + questionId;
+
+        String eTag = eTagOf(url);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+
+        questionService.updateQuestion(questionId, QuestionDto.builder().title("polled question, edited").content("content").build());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+        assertNotEquals(eTag, eTagOf(url));
+    }
+
+    @Test
+    void questionChangedByAnotherInstanceIsModified() throws Exception {
+        Integer questionId = questionRepository.save(Question.builder().title("shared question").createdAt(LocalDate.now()).build()).getId();
+        String url = "/api/questions/" + questionId;
+        String eTag = eTagOf(url);
+
+        jdbcTemplate.update("update question set title = 'shared question, edited elsewhere', version = version + 1 where id = ?", questionId);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("shared question, edited elsewhere"));
+
+        eTag = eTagOf(url);
+        jdbcTemplate.update("insert into question_vote_counter (question_id, shard, up_vote_count, down_vote_count) values (?, 0, 1, 0)", questionId);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.upVoteCount").value(1));
+    }
+
+    @Test
+    void answerListIsNotModifiedUntilAnAnswerChanges() throws Exception {
+        Integer questionId = questionRepository.save(Question.builder().title("polled answers").createdAt(LocalDate.now()).build()).getId();
+        Integer answerId = answerService.createAnswerForQuestionAdmin(questionId,
+                AnswerDtoAdmin.builder().content("first answer").createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+        String url = "/api/questions/" + questionId + "/answers";
+
+        String eTag = eTagOf(url);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+
+        answerService.updateAnswer(answerId, AnswerDto.builder().content("edited answer").build());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+    }
+
+    @Test
+    void answerListChangedByAnotherInstanceIsModified() throws Exception {
+        Integer questionId = questionRepository.save(Question.builder().title("shared answers").createdAt(LocalDate.now()).build()).getId();
+        Integer answerId = answerService.createAnswerForQuestionAdmin(questionId,
+                AnswerDtoAdmin.builder().content("shared answer").createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+        String url = "/api/questions/" + questionId + "/answers";
+        String eTag = eTagOf(url);
+
+        jdbcTemplate.update("insert into answer_vote_counter (answer_id, shard, up_vote_count, down_vote_count) values (?, 0, 0, 1)", answerId);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].downVoteCount").value(1));
+    }
+
+    @Test
+    void answerIsNotModifiedUntilItChanges() throws Exception {
+        Integer questionId = questionRepository.save(Question.builder().title("polled answer").createdAt(LocalDate.now()).build()).getId();
+        Integer answerId = answerService.createAnswerForQuestionAdmin(questionId,
+                AnswerDtoAdmin.builder().content("polled answer").createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+        String url = "/api/answers/" + answerId;
+
+        String eTag = eTagOf(url);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+
+        answerService.updateAnswer(answerId, AnswerDto.builder().content("polled answer, edited").build());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk());
+    }
+
+    @Test
+    void userIsNotModifiedUntilTheyPost() throws Exception {
+        String userUrl = "/api/users/user2";
+        String usersUrl = "/api/users";
+
+        String userETag = eTagOf(userUrl);
+        String usersETag = eTagOf(usersUrl);
+        mockMvc.perform(get(userUrl).header(HttpHeaders.IF_NONE_MATCH, userETag)).andExpect(status().isNotModified());
+        mockMvc.perform(get(usersUrl).header(HttpHeaders.IF_NONE_MATCH, usersETag)).andExpect(status().isNotModified());
+
+        Integer questionId = questionRepository.save(Question.builder().title("answered by user2").createdAt(LocalDate.now()).build()).getId();
+        answerService.createAnswerForQuestionAdmin(questionId,
+                AnswerDtoAdmin.builder().content("answer of user2").createdAt(LocalDate.now().toString()).author("user2").build());
+        mockMvc.perform(get(userUrl).header(HttpHeaders.IF_NONE_MATCH, userETag)).andExpect(status().isOk());
+        mockMvc.perform(get(usersUrl).header(HttpHeaders.IF_NONE_MATCH, usersETag)).andExpect(status().isOk());
+    }
+
+    private String eTagOf(String url) throws Exception {
+        return mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
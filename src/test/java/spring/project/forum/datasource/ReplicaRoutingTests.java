@@ -0,0 +1,129 @@
+package spring.project.forum.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.annotation.DirtiesContext;
+import spring.project.forum.api.v1.dto.QuestionDto;
+import spring.project.forum.api.v1.dto.UserDto;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+import spring.project.forum.service.QuestionService;
+import spring.project.forum.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two in-memory H2 databases stand in for the replicas. Nothing replicates into them, so each holds only the
+ * user it was seeded with, which shows where a read went.
+ */
+@SpringBootTest(properties = {
+        "forum.datasource.replica-urls=jdbc:h2:mem:replica-a-${random.uuid},jdbc:h2:mem:replica-b-${random.uuid}",
+        "forum.datasource.migrate-replicas=true",
+        "forum.datasource.read-your-writes-ms=60000"
+})
+class ReplicaRoutingTests {
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seedReplicas() {
+        seed(0, "onReplicaA");
+        seed(1, "onReplicaB");
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsAlternateBetweenReplicasAndWritesGoToThePrimary() {
+        assertAlternates(availability("onReplicaA", 4));
+        assertAlternates(availability("onReplicaB", 4));
+
+        userService.createUser(new UserDto("routedWriter", "password"));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from user where username = 'routedWriter'", Integer.class));
+        assertEquals(List.of(true, true), availability("routedWriter", 2));
+    }
+
+    @Test
+    void writersReadTheirOwnWritesFromThePrimary() {
+        User writer = userRepository.save(User.builder().username("stickyWriter").password("password").build());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(writer, null, List.of()));
+        assertAlternates(availability("onReplicaA", 2));
+
+        questionService.createQuestion(new QuestionDto("Sticky question", "Read it back"));
+        assertEquals(List.of(true, true), availability("onReplicaA", 2));
+
+        SecurityContextHolder.clearContext();
+        assertAlternates(availability("onReplicaA", 2));
+    }
+
+    @Test
+    @DirtiesContext
+    void failingReplicasAreEjected() {
+        ((HikariDataSource) replicaRoutingDataSource.getReplica(0)).close();
+        assertEquals(List.of(false, false, false), availability("onReplicaB", 3));
+
+        ((HikariDataSource) replicaRoutingDataSource.getReplica(1)).close();
+        assertTrue(userService.checkUsernameAvailability("onReplicaB"));
+        assertFalse(userService.checkUsernameAvailability(userRepository.findAll().get(0).getUsername()));
+    }
+
+    @Test
+    void replicaReadsAreNotCachedForThePrimary() {
+        entityManagerFactory.getCache().evict(User.class);
+        userService.getAll();
+        userService.getAll();
+
+        String username = jdbcTemplate.queryForObject("select username from user where id = 1", String.class);
+        assertEquals(username, userRepository.findById(1).orElseThrow().getUsername());
+    }
+
+    private List<Boolean> availability(String username, int reads) {
+        return IntStream.range(0, reads)
+                .mapToObj(i -> userService.checkUsernameAvailability(username))
+                .collect(Collectors.toList());
+    }
+
+    private static void assertAlternates(List<Boolean> reads) {
+        for (int i = 1; i < reads.size(); i++)
+            assertNotEquals(reads.get(i - 1), reads.get(i), "Reads " + reads + " did not alternate between the replicas");
+    }
+
+    private void seed(int replica, String username) {
+        new JdbcTemplate(replicaRoutingDataSource.getReplica(replica)).update("merge into user (id, username, password, enabled, " +
+                "account_non_expired, account_non_locked, credentials_non_expired) key (id) values (1, ?, 'password', true, true, true, true)", username);
+    }
+}
@@ -0,0 +1,258 @@
+package spring.project.forum.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The finders on the hot paths must be answered through an index. Every statement a finder sends is recorded
+ * with the values it was bound to and explained by H2 with the same values, as a plan for null parameters
+ * can differ from the one real requests get. The caches are emptied first, so that every finder reaches the
+ * database. H2 names each table it reads in full as tableScan.
+ */
+@SpringBootTest
+class FinderQueryPlanTests {
+
+    private static final ThreadLocal<List<RecordedStatement>> RECORDED = new ThreadLocal<>();
+
+    private static final LocalDate YESTERDAY = LocalDate.now().minusDays(1);
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    AnswerRepository answerRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    QuestionVoteRepository questionVoteRepository;
+
+    @Autowired
+    AnswerVoteRepository answerVoteRepository;
+
+    @Autowired
+    UserStatsRepository userStatsRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    User author;
+    Question question;
+
+    @BeforeEach
+    void createQuestion() {
+        transactionTemplate.executeWithoutResult(status -> {
+            author = userRepository.findByUsername("planAuthor")
+                    .orElseGet(() -> userRepository.save(User.builder().username("planAuthor").password("password").build()));
+            question = questionRepository.save(Question.builder().title("Planned question").content("content")
+                    .author(author).createdAt(LocalDate.now()).build());
+        });
+    }
+
+    @Test
+    void questionFindersUseIndexes() {
+        assertIndexed("findSummariesByAuthor", () -> questionRepository.findSummariesByAuthor(author));
+        assertIndexed("countByAuthorId", () -> questionRepository.countByAuthorId(author.getId()));
+        assertIndexed("findSummariesAnsweredBy", () -> questionRepository.findSummariesAnsweredBy(author));
+        assertIndexed("countAnsweredByAuthorId", () -> questionRepository.countAnsweredByAuthorId(author.getId()));
+        assertIndexed("findSummariesByBestAnswerIsNull", () -> questionRepository.findSummariesByBestAnswerIsNull());
+        assertIndexed("findSummariesByClosedAtIsNull", () -> questionRepository.findSummariesByClosedAtIsNull());
+        assertIndexed("findDetailById", () -> questionRepository.findDetailById(question.getId()));
+        assertIndexed("findVoteCountsById", () -> questionRepository.findVoteCountsById(question.getId()));
+    }
+
+    @Test
+    void keysetFindersUseIndexes() {
+        assertIndexed("findSummariesAfter", () -> questionRepository.findSummariesAfter(YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertIndexed("findSummariesByAuthorAfter", () -> questionRepository.findSummariesByAuthorAfter(author, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertIndexed("findSummariesAnsweredByAfter", () -> questionRepository.findSummariesAnsweredByAfter(author, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertIndexed("findSummariesByTargetQuestionIdAfter",
+                () -> answerRepository.findSummariesByTargetQuestionIdAfter(question.getId(), YESTERDAY, 1, PageRequest.of(0, 11)));
+    }
+
+    /**
+     * H2 only tells the author index apart from the one on the best answer once its statistics show questions
+     * spread over many authors, so some are written and analyzed first.
+     */
+    @Test
+    void unresolvedFindersUseIndexes() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 20; i++) {
+                User user = userRepository.save(User.builder().username("planAsker" + i).password("password").build());
+                for (int j = 0; j < 10; j++)
+                    questionRepository.save(Question.builder().title("Unresolved question " + j).content("content")
+                            .author(user).createdAt(YESTERDAY.minusDays(j)).build());
+            }
+        });
+        jdbcTemplate.execute("analyze");
+        LocalDate from = YESTERDAY.minusDays(30);
+        LocalDate to = YESTERDAY.plusDays(1);
+        assertIndexed("findUnresolvedSummariesAfter", () -> questionRepository.findUnresolvedSummariesAfter(from, to, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertIndexed("findUnansweredSummariesAfter", () -> questionRepository.findUnansweredSummariesAfter(from, to, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertIndexed("countUnresolved", () -> questionRepository.countUnresolved(from, to));
+        assertIndexed("countUnanswered", () -> questionRepository.countUnanswered(from, to));
+        assertUsesIndex("findUnresolvedSummariesByAuthorIdAfter", "idx_question_author_unresolved_created_at_id",
+                () -> questionRepository.findUnresolvedSummariesByAuthorIdAfter(author.getId(), from, to, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertUsesIndex("findUnansweredSummariesByAuthorIdAfter", "idx_question_author_unresolved_created_at_id",
+                () -> questionRepository.findUnansweredSummariesByAuthorIdAfter(author.getId(), from, to, YESTERDAY, 1, PageRequest.of(0, 11)));
+        assertUsesIndex("countUnresolvedByAuthorId", "idx_question_author_unresolved_created_at_id",
+                () -> questionRepository.countUnresolvedByAuthorId(author.getId(), from, to));
+        assertUsesIndex("countUnansweredByAuthorId", "idx_question_author_unresolved_created_at_id",
+                () -> questionRepository.countUnansweredByAuthorId(author.getId(), from, to));
+    }
+
+    @Test
+    void answerFindersUseIndexes() {
+        assertIndexed("findAllByTargetQuestion", () -> answerRepository.findAllByTargetQuestion(question));
+        assertIndexed("countByTargetQuestionId", () -> answerRepository.countByTargetQuestionId(question.getId()));
+        assertIndexed("findSummariesByTargetQuestionId", () -> answerRepository.findSummariesByTargetQuestionId(question.getId()));
+        assertIndexed("findIdsByTargetQuestionId", () -> answerRepository.findIdsByTargetQuestionId(question.getId()));
+        assertIndexed("findAllByAuthor", () -> answerRepository.findAllByAuthor(author));
+    }
+
+    @Test
+    void userFindersUseIndexes() {
+        assertIndexed("findByUsername", () -> userRepository.findByUsername("planAuthor"));
+        assertIndexed("existsByUsername", () -> userRepository.existsByUsername("planAuthor"));
+        assertIndexed("findStatsByUsername", () -> userStatsRepository.findStatsByUsername("planAuthor"));
+        assertIndexed("questionVotes.findAllByIdUserId", () -> questionVoteRepository.findAllByIdUserId(author.getId()));
+        assertIndexed("answerVotes.findAllByIdUserId", () -> answerVoteRepository.findAllByIdUserId(author.getId()));
+    }
+
+    private void assertIndexed(String finder, Runnable call) {
+        List<RecordedStatement> statements = record(finder, call);
+        for (RecordedStatement statement : statements) {
+            String plan = explain(statement);
+            assertFalse(plan.contains(".tableScan"), finder + " scans a whole table:\n" + plan);
+        }
+    }
+
+    /**
+     * For the finders that have an index of their own, checks that the plan reads the question table through it.
+     */
+    private void assertUsesIndex(String finder, String index, Runnable call) {
+        String plan = explain(record(finder, call).get(0));
+        assertTrue(plan.toLowerCase().contains(index), finder + " does not use " + index + ":\n" + plan);
+    }
+
+    private List<RecordedStatement> record(String finder, Runnable call) {
+        List<RecordedStatement> statements = new ArrayList<>();
+        entityManagerFactory.getCache().evictAll();
+        RECORDED.set(statements);
+        try {
+            call.run();
+        } finally {
+            RECORDED.remove();
+        }
+        assertFalse(statements.isEmpty(), finder + " sent no statement");
+        return statements;
+    }
+
+    private String explain(RecordedStatement recorded) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + recorded.sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++)
+                    statement.setObject(i, recorded.parameters.get(i));
+                try (ResultSet plan = statement.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    private static final class RecordedStatement {
+        private final String sql;
+        private final Map<Integer, Object> parameters = new HashMap<>();
+
+        private RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Wraps the datasource so that the statements a finder prepares are recorded with the values bound to them.
+     */
+    @TestConfiguration
+    static class RecordingDataSourceConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? recording(bean, DataSource.class, Closeable.class) : bean;
+                }
+            };
+        }
+
+        private static Object recording(Object target, Class<?>... interfaces) {
+            return Proxy.newProxyInstance(FinderQueryPlanTests.class.getClassLoader(), interfaces, (proxy, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof Connection && method.getName().equals("getConnection"))
+                    return recording(result, Connection.class);
+                List<RecordedStatement> recorded = RECORDED.get();
+                if (recorded != null && result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                    RecordedStatement statement = new RecordedStatement((String) args[0]);
+                    recorded.add(statement);
+                    return binding((PreparedStatement) result, statement);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement binding(PreparedStatement target, RecordedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(FinderQueryPlanTests.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+                            statement.parameters.put((Integer) args[0], method.getName().equals("setNull") ? null : args[1]);
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException exc) {
+                throw exc.getCause();
+            }
+        }
+    }
+}
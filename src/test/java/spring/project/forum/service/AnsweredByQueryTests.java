@@ -0,0 +1,86 @@
+package spring.project.forum.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.CursorPageDto;
+import spring.project.forum.model.Answer;
+import spring.project.forum.model.PageCount;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Questions answered by a user are listed once each, however many answers the user gave to them, and
+ * are read as summaries without loading any answer or question.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class AnsweredByQueryTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    AnswerRepository answerRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void answeredQuestionsArePagedWithoutDuplicates() {
+        List<Integer> answered = transactionTemplate.execute(status -> {
+            User answerer = userRepository.save(User.builder().username("prolificAnswerer").password("password").build());
+            List<Question> questions = questionRepository.saveAll(IntStream.range(0, 7)
+                    .mapToObj(i -> Question.builder().title("answered " + i).content("content").createdAt(LocalDate.now()).build())
+                    .collect(Collectors.toList()));
+            answerRepository.saveAll(questions.stream()
+                    .flatMap(question -> IntStream.range(0, 40).mapToObj(i -> Answer.builder()
+                            .content("answer " + i).author(answerer).targetQuestion(question).createdAt(LocalDate.now()).build()))
+                    .collect(Collectors.toList()));
+            return questions.stream().map(Question::getId).collect(Collectors.toList());
+        });
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Page<QuestionSummary> page = (Page<QuestionSummary>) questionService.getQuestionsAnsweredByUser("prolificAnswerer", 1, 3, "id", PageCount.EXACT);
+        assertEquals(7, page.getTotalElements());
+        assertEquals(answered.subList(3, 6), page.getContent().stream().map(QuestionSummary::getId).collect(Collectors.toList()));
+        assertEquals(0, statistics.getEntityStatistics(Answer.class.getName()).getLoadCount());
+        assertEquals(0, statistics.getEntityStatistics(Question.class.getName()).getLoadCount());
+
+        List<Integer> walked = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPageDto<QuestionSummary> cursorPage = questionService.getQuestionsAnsweredByUser("prolificAnswerer", after, 2);
+            cursorPage.getContent().forEach(question -> walked.add(question.getId()));
+            after = cursorPage.getNext();
+        } while (after != null);
+        assertEquals(answered, walked);
+        assertEquals(answered, questionService.getQuestionsAnsweredByUser("prolificAnswerer").stream().map(QuestionSummary::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,29 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts are kept for at most max-entries keys, least recently used evicted first.
+ */
+class ApproximateCountsTests {
+
+    @Test
+    void leastRecentlyUsedCountIsEvicted() {
+        ApproximateCounts approximateCounts = new ApproximateCounts(2);
+        AtomicInteger counted = new AtomicInteger();
+        approximateCounts.get("first", counted::incrementAndGet);
+        approximateCounts.get("second", counted::incrementAndGet);
+        approximateCounts.get("first", counted::incrementAndGet);
+        approximateCounts.get("third", counted::incrementAndGet);
+        assertEquals(3, counted.get());
+
+        approximateCounts.get("first", counted::incrementAndGet);
+        assertEquals(3, counted.get());
+        approximateCounts.get("second", counted::incrementAndGet);
+        assertEquals(4, counted.get());
+    }
+}
@@ -0,0 +1,126 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.ExportResultDto;
+import spring.project.forum.model.ExportFormat;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Both export formats hold every row of every exported table, and the reported counts match them.
+ */
+@SpringBootTest
+class ContentExportTests {
+
+    @Autowired
+    ContentExporter contentExporter;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void ndjsonExportHoldsEveryRow() throws IOException {
+        Question question = exportedQuestion("ndjsonExporter");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExportResultDto result = contentExporter.export(ExportFormat.NDJSON, output);
+
+        List<JsonNode> records;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())), StandardCharsets.UTF_8))) {
+            records = reader.lines().map(line -> {
+                try {
+                    return objectMapper.readTree(line);
+                } catch (IOException exc) {
+                    throw new IllegalStateException(exc);
+                }
+            }).collect(Collectors.toList());
+        }
+        assertEquals(tableCounts(), result.getRows());
+        assertEquals(result.getTotalRows(), records.size());
+        assertEquals((long) output.size(), result.getBytes());
+        JsonNode exported = records.stream()
+                .filter(record -> record.path("type").asText().equals("question") && record.path("id").asInt() == question.getId())
+                .findFirst().orElseThrow();
+        assertEquals("Commas, \"quotes\"\nand lines", exported.path("content").asText());
+        assertEquals("ndjsonExporter", exported.path("author").asText());
+        assertEquals("2012-12-21", exported.path("createdAt").asText());
+    }
+
+    @Test
+    void csvExportHoldsOneFilePerTable() throws IOException {
+        exportedQuestion("csvExporter");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExportResultDto result = contentExporter.export(ExportFormat.CSV, output);
+
+        Map<String, String> files = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null)
+                files.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(result.getRows().keySet().stream().map(table -> table + ".csv").collect(Collectors.toSet()), files.keySet());
+        String questions = files.get("questions.csv");
+        assertTrue(questions.startsWith("id,title,content,author,createdAt,closedAt,bestAnswer\r\n"));
+        assertTrue(questions.contains(",\"Commas, \"\"quotes\"\"\nand lines\",csvExporter,2012-12-21,,"));
+        assertEquals(tableCounts(), result.getRows());
+    }
+
+    private Question exportedQuestion(String username) {
+        return transactionTemplate.execute(status -> {
+            User author = userRepository.save(User.builder().username(username).password("password").build());
+            return questionRepository.save(Question.builder().title("Exported question").content("Commas, \"quotes\"\nand lines")
+                    .author(author).createdAt(LocalDate.of(2012, 12, 21)).build());
+        });
+    }
+
+    private Map<String, Long> tableCounts() {
+        return Map.of(
+                "users", count("user"),
+                "questions", count("question"),
+                "answers", count("answer"),
+                "question_votes", count("question_vote"),
+                "answer_votes", count("answer_vote"));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+}
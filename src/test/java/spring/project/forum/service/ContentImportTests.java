@@ -0,0 +1,92 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import spring.project.forum.api.v1.dto.ImportResultDto;
+import spring.project.forum.api.v1.dto.UserStatsDto;
+import spring.project.forum.model.Question;
+import spring.project.forum.repository.QuestionRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A bulk import resolves legacy ids across chunks and runs, rejects what the admin endpoints would reject and
+ * keeps votes, best answers, user statistics and search in step with what it wrote.
+ */
+@SpringBootTest(properties = "forum.import.chunk-size=3")
+class ContentImportTests {
+
+    private static final List<String> LINES = List.of(
+            "{\"type\":\"user\",\"username\":\"legacyAsker\",\"password\":\"password\"}",
+            "{\"type\":\"user\",\"username\":\"legacyHelper\",\"password\":\"password\"}",
+            "{\"type\":\"question\",\"id\":\"q1\",\"title\":\"Imported dirigible question\",\"content\":\"How do airships float?\"," +
+                    "\"createdAt\":\"2015-04-01\",\"author\":\"legacyAsker\"}",
+            "{\"type\":\"question\",\"id\":\"q2\",\"title\":\"Closed before it was asked\",\"createdAt\":\"2015-04-02\"," +
+                    "\"closedAt\":\"2015-04-01\",\"author\":\"legacyAsker\"}",
+            "",
+            "{\"type\":\"answer\",\"id\":\"a1\",\"question\":\"q1\",\"content\":\"Lighter than air gas.\",\"createdAt\":\"2015-04-03\"," +
+                    "\"author\":\"legacyHelper\",\"best\":true}",
+            "{\"type\":\"vote\",\"user\":\"legacyHelper\",\"question\":\"q1\",\"vote\":\"UP\"}",
+            "{\"type\":\"vote\",\"user\":\"legacyAsker\",\"answer\":\"a1\",\"vote\":\"UP\"}",
+            "{\"type\":\"answer\",\"question\":\"q2\",\"content\":\"This question was rejected.\",\"createdAt\":\"2015-04-03\",\"author\":\"legacyHelper\"}",
+            "{\"type\":\"vote\",\"user\":\"nobody\",\"question\":\"q1\",\"vote\":\"UP\"}",
+            "{\"type\":\"answer\",\"question\":\"q1\",\"content\":\"Answered before it was asked.\",\"createdAt\":\"2015-03-31\",\"author\":\"legacyHelper\"}",
+            "not json");
+
+    @Autowired
+    ContentImporter contentImporter;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Test
+    void importResumesAfterTheLastCommittedLine() {
+        ImportResultDto first = contentImporter.importStream("legacy-forum", ndjson(LINES.subList(0, 4)));
+        assertEquals(2, first.getUsers());
+        assertEquals(1, first.getQuestions());
+        assertEquals(List.of("line 4: Question closing date cannot be before question creation date"), first.getErrors());
+
+        ImportResultDto second = contentImporter.importStream("legacy-forum", ndjson(LINES));
+        assertEquals(4, second.getResumedAfterLine());
+        assertEquals(12, second.getLines());
+        assertEquals(0, second.getUsers());
+        assertEquals(1, second.getAnswers());
+        assertEquals(2, second.getVotes());
+        assertEquals(4, second.getRejected());
+        assertEquals("line 9: Question with id q2 not found", second.getErrors().get(0));
+        assertEquals("line 10: User nobody not found", second.getErrors().get(1));
+        assertEquals("line 11: Answer creation date cannot be before the creation date of its question", second.getErrors().get(2));
+        assertTrue(second.getErrors().get(3).startsWith("line 12: Malformed JSON"));
+
+        Question question = questionRepository.findAll().stream()
+                .filter(candidate -> candidate.getTitle().equals("Imported dirigible question"))
+                .findFirst().orElseThrow();
+        assertEquals(1, questionService.getById(question.getId()).getUpVoteCount());
+        assertEquals("Lighter than air gas.", question.getBestAnswer().getContent());
+        assertEquals(new UserStatsDto("legacyAsker", 1L, 0L, 0L, 1L, 0L, 5L), userService.getStats("legacyAsker"));
+        assertEquals(new UserStatsDto("legacyHelper", 0L, 1L, 1L, 1L, 0L, 25L), userService.getStats("legacyHelper"));
+        searchIndex.refresh();
+        assertEquals(1, searchIndex.search("airship", 0, 10).getTotalElements());
+
+        assertEquals(12, contentImporter.importStream("legacy-forum", ndjson(LINES)).getResumedAfterLine());
+    }
+
+    private static ByteArrayInputStream ndjson(List<String> lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
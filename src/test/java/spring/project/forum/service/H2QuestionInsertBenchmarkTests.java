@@ -0,0 +1,7 @@
+package spring.project.forum.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class H2QuestionInsertBenchmarkTests extends QuestionInsertBenchmark {
+}
@@ -0,0 +1,68 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Votes and closing move questions in the hot ranking without waiting for a rebuild.
+ */
+@SpringBootTest
+class HotQuestionsTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Test
+    void votesAndClosingUpdateTheRanking() {
+        Integer upVoted = questionService.createQuestionAdmin(question("hot question, voted")).getId();
+        Integer notVoted = questionService.createQuestionAdmin(question("hot question, not voted")).getId();
+        List<User> voters = userRepository.saveAll(List.of(
+                User.builder().username("hotVoter1").password("password").build(),
+                User.builder().username("hotVoter2").password("password").build(),
+                User.builder().username("hotVoter3").password("password").build()));
+        for (User voter : voters) {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+            try {
+                questionService.upVote(upVoted);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        List<Integer> hottest = hotIds();
+        assertTrue(hottest.contains(upVoted));
+        assertTrue(hottest.indexOf(upVoted) < hottest.indexOf(notVoted));
+
+        questionService.closeQuestion(upVoted);
+        assertFalse(hotIds().contains(upVoted));
+
+        questionService.openQuestion(upVoted);
+        assertEquals(hottest, hotIds());
+    }
+
+    private List<Integer> hotIds() {
+        return questionService.getHot(100).stream().map(QuestionSummary::getId).collect(Collectors.toList());
+    }
+
+    private static QuestionDtoAdmin question(String title) {
+        return QuestionDtoAdmin.builder().title(title).content("content").createdAt(LocalDate.now().toString()).author("user1").build();
+    }
+}
@@ -0,0 +1,16 @@
+package spring.project.forum.service;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Stands in for the mysql profile with H2 in MySQL mode behind the MySQL dialect, so the ids come from
+ * table-backed sequences as they do on MySQL. Point the datasource at a real server for real numbers.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:mysql-stand-in;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQL8Dialect",
+        "spring.flyway.locations=classpath:db/migration/mysql"
+})
+class MySqlQuestionInsertBenchmarkTests extends QuestionInsertBenchmark {
+}
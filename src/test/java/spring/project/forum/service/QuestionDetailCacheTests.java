@@ -0,0 +1,70 @@
+package spring.project.forum.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.QuestionDto;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * A rendered question is served from memory until the version read from its rows changes.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class QuestionDetailCacheTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void renderedQuestionIsReusedUntilItChanges() throws Exception {
+        User voter = userRepository.save(User.builder().username("detailCacheVoter").password("password").build());
+        Integer questionId = questionRepository.save(Question.builder().title("cached title").createdAt(LocalDate.now()).build()).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        byte[] rendered = questionService.getRenderedById(questionId);
+        statistics.clear();
+        assertSame(rendered, questionService.getRenderedById(questionId));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        questionService.updateQuestion(questionId, QuestionDto.builder().title("edited title").content("content").build());
+        assertEquals("edited title", objectMapper.readTree(questionService.getRenderedById(questionId)).get("title").asText());
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            questionService.upVote(questionId);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        JsonNode voted = objectMapper.readTree(questionService.getRenderedById(questionId));
+        assertEquals(1, voted.get("upVoteCount").asInt());
+        assertEquals(1, voted.get("score").asInt());
+    }
+}
@@ -0,0 +1,56 @@
+package spring.project.forum.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.model.Question;
+import spring.project.forum.repository.QuestionRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Inserts/sec of 100k questions written through JPA in transactions of a thousand, with pooled ids and
+ * JDBC batching. Subclasses pick the database. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+abstract class QuestionInsertBenchmark {
+
+    private static final int QUESTIONS = 100_000;
+    private static final int CHUNK = 1_000;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void insertQuestions() {
+        long before = questionRepository.count();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int chunk = 0; chunk < QUESTIONS; chunk += CHUNK) {
+            int first = chunk;
+            transactionTemplate.executeWithoutResult(status -> questionRepository.saveAll(IntStream.range(first, first + CHUNK)
+                    .mapToObj(i -> Question.builder().title("bulk question " + i).content("content " + i).createdAt(LocalDate.now()).build())
+                    .collect(Collectors.toList())));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(before + QUESTIONS, questionRepository.count());
+        System.out.printf("%s: %.0f question inserts/s, %d statements prepared%n",
+                getClass().getSimpleName(), QUESTIONS / (elapsed / 1e9), statistics.getPrepareStatementCount());
+    }
+}
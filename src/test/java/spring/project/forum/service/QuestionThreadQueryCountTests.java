@@ -0,0 +1,99 @@
+package spring.project.forum.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.QuestionThreadDto;
+import spring.project.forum.model.Answer;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The thread endpoint must read a question with any number of answers in the same number of statements.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class QuestionThreadQueryCountTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    AnswerRepository answerRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void threadStatementCountDoesNotDependOnAnswerCount() {
+        userRepository.save(User.builder().username("threadAuthor").password("password").build());
+        Integer smallThread = createThread(1);
+        Integer largeThread = createThread(500);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        QuestionThreadDto small = questionService.getThread(smallThread);
+        long smallStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        QuestionThreadDto large = questionService.getThread(largeThread);
+        long largeStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(1, small.getAnswers().size());
+        assertEquals(500, large.getAnswers().size());
+        assertEquals(smallStatements, largeStatements);
+        assertEquals(2, largeStatements);
+
+        assertEquals(large.getQuestion().getBestAnswerId(), large.getAnswers().get(0).getId());
+        assertTrue(large.getAnswers().get(0).getIsBestAnswer());
+        assertEquals("threadAuthor", large.getAnswers().get(1).getAuthor());
+    }
+
+    private Integer createThread(int answerCount) {
+        return transactionTemplate.execute(status -> {
+            User author = userRepository.findByUsername("threadAuthor").get();
+            Question question = questionRepository.save(Question.builder()
+                    .title("thread with " + answerCount + " answers")
+                    .content("content")
+                    .author(author)
+                    .createdAt(LocalDate.now())
+                    .build());
+            List<Answer> answers = answerRepository.saveAll(IntStream.range(0, answerCount)
+                    .mapToObj(i -> Answer.builder()
+                            .content("answer " + i)
+                            .author(author)
+                            .targetQuestion(question)
+                            .createdAt(LocalDate.now())
+                            .build())
+                    .collect(Collectors.toList()));
+            Answer best = answers.get(answers.size() - 1);
+            best.setIsBestAnswer(true);
+            question.setBestAnswer(best);
+            return question.getId();
+        });
+    }
+}
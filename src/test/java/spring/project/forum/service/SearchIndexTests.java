@@ -0,0 +1,80 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionDto;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.SearchHitDto;
+import spring.project.forum.exception.IncorrectPageableException;
+import spring.project.forum.model.PostType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Post mutations reach the search index with the first refresh after they commit, and a reindex rebuilds the
+ * same results.
+ */
+@SpringBootTest
+class SearchIndexTests {
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    AnswerService answerService;
+
+    @Test
+    void mutationsAreSearchableAfterRefresh() {
+        Integer questionId = questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                .title("Indexing zeppelins").content("How are airships indexed?")
+                .createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+        Integer answerId = answerService.createAnswerForQuestionAdmin(questionId, AnswerDtoAdmin.builder()
+                .content("Zeppelins float on hydrogen balloons").createdAt(LocalDate.now().toString()).author("user2").build()).getId();
+        searchIndex.refresh();
+
+        List<SearchHitDto> hits = searchIndex.search("zeppelin", 0, 10).getContent();
+        assertEquals(List.of(PostType.QUESTION, PostType.ANSWER), hits.stream().map(SearchHitDto::getType).collect(Collectors.toList()));
+        assertEquals(answerId, hits.get(1).getId());
+        assertEquals(questionId, hits.get(1).getQuestionId());
+        assertEquals(1, searchIndex.search("\"hydrogen balloon\"", 0, 10).getTotalElements());
+        assertEquals(0, searchIndex.search("\"balloons hydrogen\"", 0, 10).getTotalElements());
+
+        questionService.updateQuestion(questionId, QuestionDto.builder().title("Indexing dirigibles").content("content").build());
+        searchIndex.refresh();
+        assertEquals(1, searchIndex.search("zeppelin", 0, 10).getTotalElements());
+        assertEquals(questionId, searchIndex.search("dirigible", 0, 10).getContent().get(0).getId());
+
+        searchIndex.reindex();
+        assertEquals(questionId, searchIndex.search("dirigible", 0, 10).getContent().get(0).getId());
+
+        questionService.deleteById(questionId);
+        searchIndex.refresh();
+        assertTrue(searchIndex.search("dirigible | zeppelin", 0, 10).isEmpty());
+    }
+
+    @Test
+    void resultsArePaged() {
+        for (int i = 0; i < 5; i++)
+            questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                    .title("Paging quokka " + i).content("content").createdAt(LocalDate.now().toString()).author("user1").build());
+        searchIndex.refresh();
+
+        Page<SearchHitDto> page = searchIndex.search("quokka", 1, 2);
+        assertEquals(5, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(2, page.getContent().size());
+        assertThrows(IncorrectPageableException.class, () -> searchIndex.search("quokka", Integer.MAX_VALUE, 100));
+    }
+}
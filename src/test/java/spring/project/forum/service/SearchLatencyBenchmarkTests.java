@@ -0,0 +1,75 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures search latency over a disk-backed index of synthetic posts, 1M by default
+ * ({@code -Dforum.search.benchmark.documents=...}). Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SearchLatencyBenchmarkTests {
+
+    private static final int DOCUMENTS = Integer.getInteger("forum.search.benchmark.documents", 1_000_000);
+    private static final int VOCABULARY = 20_000;
+    private static final int QUERIES = 2_000;
+
+    @TempDir
+    Path indexDir;
+
+    @Test
+    void measureQueryLatency() throws Exception {
+        Random random = new Random(42);
+        SearchIndex searchIndex = new SearchIndex(new JdbcTemplate(), indexDir.toString());
+        try {
+            long start = System.nanoTime();
+            for (int id = 1; id <= DOCUMENTS; id++)
+                searchIndex.indexQuestion(id, text(random, 8), text(random, 60));
+            searchIndex.commit();
+            searchIndex.refresh();
+            System.out.printf("indexed %d documents in %.1f s%n", DOCUMENTS, (System.nanoTime() - start) / 1e9);
+
+            report("term", searchIndex, () -> word(random));
+            report("two terms", searchIndex, () -> word(random) + " " + word(random));
+            report("phrase", searchIndex, () -> "\"" + word(random) + " " + word(random) + "\"");
+        } finally {
+            searchIndex.close();
+        }
+    }
+
+    private static void report(String kind, SearchIndex searchIndex, Supplier<String> queries) {
+        for (int i = 0; i < QUERIES / 10; i++)
+            searchIndex.search(queries.get(), 0, 20);
+        long[] latencies = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String query = queries.get();
+            long start = System.nanoTime();
+            searchIndex.search(query, 0, 20);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s: p50 %.2f ms, p99 %.2f ms%n", kind,
+                latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 99 / 100] / 1e6);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++)
+            text.append(word(random)).append(' ');
+        return text.toString();
+    }
+
+    /**
+     * Zipf-like word choice, so a few words are in most documents and most words in few.
+     */
+    private static String word(Random random) {
+        return "w" + (int) Math.pow(VOCABULARY, random.nextDouble());
+    }
+}
@@ -0,0 +1,128 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.QuestionDto;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.TitleSuggestionDto;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Suggestions follow question creation, renaming, votes and deletion, always match picking the top
+ * scored titles by brute force and stay in score order while votes come in.
+ */
+@SpringBootTest
+class TitleSuggestionsTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Test
+    void suggestionsFollowQuestionChanges() {
+        Integer first = questionService.createQuestionAdmin(question("Kiwi  fruit storage")).getId();
+        Integer second = questionService.createQuestionAdmin(question("Kiwi birds")).getId();
+        assertEquals(List.of(second, first), suggestedIds("kiwi"));
+
+        User voter = userRepository.save(User.builder().username("suggestionVoter").password("password").build());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            questionService.upVote(first);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        assertEquals(List.of(first, second), suggestedIds("  KIWI"));
+
+        questionService.updateQuestion(second, QuestionDto.builder().title("Kīwi birds, renamed").content("content").build());
+        assertEquals(List.of(second), suggestedIds("kiwi b"));
+
+        questionService.deleteById(first);
+        assertEquals(List.of(second), suggestedIds("kiwi"));
+    }
+
+    @Test
+    void topScoredTitlesMatchBruteForce() {
+        Random random = new Random(7);
+        TitleSuggestions titleSuggestions = new TitleSuggestions(null);
+        Map<Integer, String> titles = new HashMap<>();
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (int operation = 0; operation < 3000; operation++) {
+            int questionId = random.nextInt(300);
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+                titles.remove(questionId);
+                scores.remove(questionId);
+                titleSuggestions.remove(questionId);
+            } else if (kind == 1 && titles.containsKey(questionId)) {
+                int delta = random.nextInt(7) - 3;
+                scores.merge(questionId, delta, Integer::sum);
+                titleSuggestions.addVotes(questionId, delta);
+            } else {
+                String title = "t" + Integer.toString(random.nextInt(500), 3);
+                titles.put(questionId, title);
+                scores.putIfAbsent(questionId, 0);
+                titleSuggestions.put(questionId, title);
+            }
+            String prefix = "t" + Integer.toString(random.nextInt(40), 3);
+            List<Integer> expected = titles.keySet().stream()
+                    .filter(id -> titles.get(id).startsWith(prefix))
+                    .sorted(Comparator.comparing((Integer id) -> -scores.get(id)).thenComparing(titles::get).thenComparing(id -> id))
+                    .limit(5)
+                    .collect(Collectors.toList());
+            List<Integer> actual = titleSuggestions.suggest(prefix, 5).stream().map(TitleSuggestionDto::getId).collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void lookupsDuringVotesSeeConsistentScores() throws InterruptedException {
+        TitleSuggestions titleSuggestions = new TitleSuggestions(null);
+        for (int questionId = 0; questionId < 1000; questionId++)
+            titleSuggestions.put(questionId, "concurrent " + questionId);
+        AtomicBoolean voting = new AtomicBoolean(true);
+        Thread voter = new Thread(() -> {
+            Random random = new Random(11);
+            while (voting.get())
+                titleSuggestions.addVotes(random.nextInt(1000), random.nextInt(21) - 10);
+        });
+        voter.start();
+        try {
+            for (int lookup = 0; lookup < 20000; lookup++) {
+                List<Integer> scores = titleSuggestions.suggest("concurrent", 10).stream()
+                        .map(TitleSuggestionDto::getScore).collect(Collectors.toList());
+                assertEquals(10, scores.size());
+                for (int i = 1; i < scores.size(); i++)
+                    assertTrue(scores.get(i - 1) >= scores.get(i), "Suggestions out of order: " + scores);
+            }
+        } finally {
+            voting.set(false);
+            voter.join();
+        }
+    }
+
+    private List<Integer> suggestedIds(String prefix) {
+        return questionService.suggestTitles(prefix, 10).stream().map(TitleSuggestionDto::getId).collect(Collectors.toList());
+    }
+
+    private static QuestionDtoAdmin question(String title) {
+        return QuestionDtoAdmin.builder().title(title).content("content").createdAt(LocalDate.now().toString()).author("user1").build();
+    }
+}
@@ -0,0 +1,103 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.project.forum.api.v1.dto.CursorPageDto;
+import spring.project.forum.exception.CustomValidationException;
+import spring.project.forum.exception.IncorrectPageableException;
+import spring.project.forum.model.Answer;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.AnswerRepository;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The unresolved queue leaves out closed questions and questions with a best answer, and its filters combine.
+ */
+@SpringBootTest
+class UnresolvedQueueTests {
+
+    private static final LocalDate DAY = LocalDate.of(2001, 3, 1);
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    AnswerRepository answerRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void queueHoldsOpenQuestionsWithoutBestAnswer() {
+        List<Integer> expected = transactionTemplate.execute(status -> {
+            User asker = userRepository.save(User.builder().username("queueAsker").password("password").build());
+            User other = userRepository.save(User.builder().username("queueOther").password("password").build());
+            Question unanswered = question(asker, DAY, null);
+            Question answered = question(asker, DAY.plusDays(1), null);
+            answerRepository.save(Answer.builder().content("not quite").targetQuestion(answered).createdAt(DAY).build());
+            Question resolved = question(asker, DAY.plusDays(2), null);
+            Answer best = answerRepository.save(Answer.builder().content("exactly").targetQuestion(resolved).isBestAnswer(true).createdAt(DAY).build());
+            resolved.setBestAnswer(best);
+            question(asker, DAY.plusDays(3), DAY.plusDays(4));
+            Question otherAuthor = question(other, DAY.plusDays(4), null);
+            Question late = question(asker, DAY.plusDays(10), null);
+            return List.of(unanswered.getId(), answered.getId(), otherAuthor.getId(), late.getId());
+        });
+
+        assertEquals(expected.subList(0, 3), walk(null, DAY, DAY.plusDays(5), false));
+        assertEquals(List.of(expected.get(0), expected.get(1), expected.get(3)), walk("queueAsker", DAY, null, false));
+        assertEquals(List.of(expected.get(0), expected.get(3)), walk("queueAsker", DAY, null, true));
+
+        CursorPageDto<QuestionSummary> page = questionService.getUnresolved("queueAsker", DAY, DAY.plusDays(5), false, null, 1);
+        assertEquals(2, page.getTotal());
+        assertEquals(1, questionService.getUnresolved("queueAsker", DAY, DAY.plusDays(5), true, null, 1).getTotal());
+        assertNull(questionService.getUnresolved("queueAsker", DAY, DAY.plusDays(5), false, page.getNext(), 1).getTotal());
+        assertEquals(3, questionService.getUnresolved("queueAsker", null, null, false, null, 1).getTotal());
+    }
+
+    @Test
+    void reversedDateRangeIsRejected() {
+        assertThrows(CustomValidationException.class, () -> questionService.getUnresolved(null, DAY.plusDays(1), DAY, false, null, 10));
+    }
+
+    @Test
+    void oversizedPageIsRejected() {
+        assertThrows(IncorrectPageableException.class, () -> questionService.getUnresolved(null, null, null, false, null, Integer.MAX_VALUE));
+        assertThrows(IncorrectPageableException.class, () -> questionService.getAll(null, 101));
+    }
+
+    private List<Integer> walk(String author, LocalDate from, LocalDate to, boolean unansweredOnly) {
+        List<Integer> walked = new ArrayList<>();
+        String after = null;
+        do {
+            CursorPageDto<QuestionSummary> page = questionService.getUnresolved(author, from, to, unansweredOnly, after, 2);
+            page.getContent().forEach(question -> walked.add(question.getId()));
+            after = page.getNext();
+        } while (after != null);
+        return walked;
+    }
+
+    private Question question(User author, LocalDate createdAt, LocalDate closedAt) {
+        return questionRepository.save(Question.builder().title("queued").content("content").author(author)
+                .createdAt(createdAt).closedAt(closedAt).build());
+    }
+}
@@ -0,0 +1,100 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.AnswerDtoAdmin;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.UserStatsDto;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Posting, voting and accepting answers keep the materialized stats equal to what a rebuild from the
+ * posts computes.
+ */
+@SpringBootTest
+class UserStatsTests {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    AnswerService answerService;
+
+    @Autowired
+    UserStatsCounters userStatsCounters;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void statsFollowPostsVotesAndBestAnswers() {
+        userRepository.save(User.builder().username("statsAsker").password("password").build());
+        userRepository.save(User.builder().username("statsAnswerer").password("password").build());
+        User voter = userRepository.save(User.builder().username("statsVoter").password("password").build());
+
+        Integer questionId = questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                .title("stats question").content("content").createdAt(LocalDate.now().toString()).author("statsAsker").build()).getId();
+        Integer answerId = answerService.createAnswerForQuestionAdmin(questionId, AnswerDtoAdmin.builder()
+                .content("stats answer").createdAt(LocalDate.now().toString()).author("statsAnswerer").build()).getId();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            questionService.upVote(questionId);
+            answerService.upVote(answerId);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        questionService.setBestAnswer(questionId, answerId);
+
+        assertEquals(new UserStatsDto("statsAsker", 1L, 0L, 0L, 1L, 0L, 5L), userService.getStats("statsAsker"));
+        assertEquals(new UserStatsDto("statsAnswerer", 0L, 1L, 1L, 1L, 0L, 25L), userService.getStats("statsAnswerer"));
+        assertRebuildAgrees("statsAsker", "statsAnswerer", "statsVoter");
+
+        answerService.deleteById(answerId);
+        assertEquals(new UserStatsDto("statsAnswerer", 0L, 0L, 0L, 0L, 0L, 0L), userService.getStats("statsAnswerer"));
+
+        questionService.deleteById(questionId);
+        assertEquals(new UserStatsDto("statsAsker", 0L, 0L, 0L, 0L, 0L, 0L), userService.getStats("statsAsker"));
+        assertRebuildAgrees("statsAsker", "statsAnswerer", "statsVoter");
+    }
+
+    @Test
+    void batchedVotesCreateMissingStatsOnce() {
+        User author = userRepository.save(User.builder().username("batchAuthor").password("password").build());
+        Integer first = questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                .title("first batched").content("content").createdAt(LocalDate.now().toString()).author("batchAuthor").build()).getId();
+        Integer second = questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                .title("second batched").content("content").createdAt(LocalDate.now().toString()).author("batchAuthor").build()).getId();
+        jdbcTemplate.update("delete from user_stats where user_id = ?", author.getId());
+
+        userStatsCounters.addVotesReceived(PostType.QUESTION, Map.of(first, new int[]{1, 0}, second, new int[]{2, 1}));
+        assertEquals(new UserStatsDto("batchAuthor", 0L, 0L, 0L, 3L, 1L, 13L), userService.getStats("batchAuthor"));
+    }
+
+    private void assertRebuildAgrees(String... usernames) {
+        List<UserStatsDto> incremental = stats(usernames);
+        userStatsCounters.rebuild();
+        assertEquals(incremental, stats(usernames));
+    }
+
+    private List<UserStatsDto> stats(String... usernames) {
+        return List.of(userService.getStats(usernames[0]), userService.getStats(usernames[1]), userService.getStats(usernames[2]));
+    }
+}
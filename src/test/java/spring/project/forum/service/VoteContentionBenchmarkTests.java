@@ -0,0 +1,81 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress test for concurrent votes on a single question: every voter upvotes and every third voter
+ * then switches to a downvote, so no vote may be lost or counted twice, also not by the folds running
+ * while they vote. Reports votes/sec for 1, 8 and 64 concurrent voters. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class VoteContentionBenchmarkTests {
+
+    private static final int VOTERS = 384;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 64})
+    void concurrentVotesOnOneQuestionAreNotLost(int threads) throws Exception {
+        List<User> voters = userRepository.saveAll(IntStream.range(0, VOTERS)
+                .mapToObj(i -> User.builder().username("contention" + threads + "_" + i).password("password").build())
+                .collect(Collectors.toList()));
+        Question question = questionRepository.save(Question.builder().title("contention question " + threads).createdAt(LocalDate.now()).build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < VOTERS; i++) {
+            User voter = voters.get(i);
+            boolean switchToDown = i % 3 == 0;
+            futures.add(executor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+                questionService.upVote(question.getId());
+                if (switchToDown)
+                    questionService.setVote(question.getId(), VoteState.DOWN);
+                SecurityContextHolder.clearContext();
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        int downVoters = (VOTERS + 2) / 3;
+        Question voted = questionService.getById(question.getId());
+        assertEquals(VOTERS - downVoters, voted.getUpVoteCount());
+        assertEquals(downVoters, voted.getDownVoteCount());
+        assertEquals(VOTERS - 2 * downVoters, voted.getScore());
+        System.out.printf("%d concurrent voters: %.0f votes/s%n", threads, (VOTERS + downVoters) / (elapsed / 1e9));
+    }
+}
@@ -0,0 +1,111 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.api.v1.dto.VoteCountsDto;
+import spring.project.forum.model.PostType;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.VoteState;
+import spring.project.forum.model.projection.QuestionSummary;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Posts, listings and vote responses count the shards right away, the post rows once the shards are folded
+ * into them, and folding, one post at a time here, leaves no shard rows behind.
+ */
+@SpringBootTest(properties = {"forum.votes.counter-fold-interval-ms=3600000", "forum.votes.counter-fold-batch-size=1"})
+class VoteCounterFoldTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    VoteCounters voteCounters;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void foldMovesShardsIntoPosts() {
+        voteCounters.fold();
+        Integer questionId = createQuestion("Folded votes");
+        Integer otherQuestionId = createQuestion("Other folded votes");
+        vote(questionId, "foldVoterOne", VoteState.UP);
+        VoteCountsDto counts = vote(questionId, "foldVoterTwo", VoteState.DOWN);
+        voteCounters.addAll(PostType.QUESTION, Map.of(questionId, new int[]{2, 0}, otherQuestionId, new int[]{0, 1}));
+        assertEquals(1, counts.getUpVoteCount());
+        assertEquals(1, counts.getDownVoteCount());
+        assertEquals(0, summary(questionId).getScore());
+        assertCounts(questionId, 3, 1);
+        assertCounts(otherQuestionId, 0, 1);
+
+        voteCounters.fold();
+        QuestionSummary summary = summary(questionId);
+        assertEquals(3, summary.getUpVoteCount());
+        assertEquals(1, summary.getDownVoteCount());
+        assertEquals(2, summary.getScore());
+        assertEquals(-1, summary(otherQuestionId).getScore());
+        assertCounts(questionId, 3, 1);
+        assertCounts(otherQuestionId, 0, 1);
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from question_vote_counter where question_id in (?, ?)",
+                Integer.class, questionId, otherQuestionId));
+    }
+
+    @Test
+    void legacyVoteResponseCountsTheVote() {
+        Integer questionId = createQuestion("Legacy vote response");
+        User voter = userRepository.save(User.builder().username("legacyFoldVoter").password("password").build());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            assertEquals(1, questionService.upVote(questionId).getScore());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private Integer createQuestion(String title) {
+        return questionService.createQuestionAdmin(QuestionDtoAdmin.builder()
+                .title(title).content("content").createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+    }
+
+    private void assertCounts(Integer questionId, int upVoteCount, int downVoteCount) {
+        Question question = questionService.getById(questionId);
+        assertEquals(upVoteCount, question.getUpVoteCount());
+        assertEquals(downVoteCount, question.getDownVoteCount());
+        assertEquals(upVoteCount - downVoteCount, question.getScore());
+        assertEquals(upVoteCount - downVoteCount, questionService.getThread(questionId).getQuestion().getScore());
+    }
+
+    private VoteCountsDto vote(Integer questionId, String username, VoteState state) {
+        User voter = userRepository.save(User.builder().username(username).password("password").build());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            return questionService.setVote(questionId, state);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private QuestionSummary summary(Integer questionId) {
+        return questionRepository.findSummariesByIdIn(List.of(questionId)).get(0);
+    }
+}
@@ -0,0 +1,88 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import spring.project.forum.model.Question;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.QuestionRepository;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares votes/sec of the synchronous vote path with the write-behind buffer.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "forum.votes.write-behind.enabled=true")
+class VoteThroughputBenchmarkTests {
+
+    private static final int VOTERS = 200;
+    private static final int QUESTIONS = 20;
+    private static final int THREADS = 8;
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    QuestionRepository questionRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    @Test
+    void compareSynchronousAndWriteBehindVoting() throws Exception {
+        ReflectionTestUtils.setField(voteWriteBehindBuffer, "enabled", false);
+        double synchronousRate = votesPerSecond("sync");
+
+        ReflectionTestUtils.setField(voteWriteBehindBuffer, "enabled", true);
+        double writeBehindRate = votesPerSecond("behind");
+
+        System.out.printf("synchronous: %.0f votes/s, write-behind: %.0f votes/s (%.1fx)%n",
+                synchronousRate, writeBehindRate, writeBehindRate / synchronousRate);
+    }
+
+    private double votesPerSecond(String prefix) throws Exception {
+        List<User> voters = userRepository.saveAll(IntStream.range(0, VOTERS)
+                .mapToObj(i -> User.builder().username(prefix + i).password("password").build())
+                .collect(Collectors.toList()));
+        List<Question> questions = questionRepository.saveAll(IntStream.range(0, QUESTIONS)
+                .mapToObj(i -> Question.builder().title(prefix + " benchmark question " + i).createdAt(LocalDate.now()).build())
+                .collect(Collectors.toList()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (User voter : voters)
+            futures.add(executor.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+                questions.forEach(question -> questionService.upVote(question.getId()));
+                SecurityContextHolder.clearContext();
+            }));
+        for (Future<?> future : futures)
+            future.get();
+        voteWriteBehindBuffer.flush();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        questions.forEach(question -> assertEquals(VOTERS, questionService.getById(question.getId()).getUpVoteCount()));
+        return VOTERS * QUESTIONS / (elapsed / 1e9);
+    }
+}
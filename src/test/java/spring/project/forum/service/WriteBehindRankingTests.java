@@ -0,0 +1,66 @@
+package spring.project.forum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import spring.project.forum.api.v1.dto.QuestionDtoAdmin;
+import spring.project.forum.model.security.User;
+import spring.project.forum.repository.security.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * With write-behind votes, title suggestions and hot questions count a vote once its flush has written it,
+ * and never count one the flush could not write.
+ */
+@SpringBootTest(properties = {
+        "forum.votes.write-behind.enabled=true",
+        "forum.votes.write-behind.flush-interval-ms=3600000"
+})
+class WriteBehindRankingTests {
+
+    @Autowired
+    QuestionService questionService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    TitleSuggestions titleSuggestions;
+
+    @Autowired
+    VoteWriteBehindBuffer voteWriteBehindBuffer;
+
+    @Test
+    void votesAreRankedOnceFlushed() {
+        Integer questionId = questionService.createQuestionAdmin(QuestionDtoAdmin.builder().title("Flushed ranking question")
+                .content("content").createdAt(LocalDate.now().toString()).author("user1").build()).getId();
+        User kept = userRepository.save(User.builder().username("rankedVoter").password("password").build());
+        User removed = userRepository.save(User.builder().username("removedVoter").password("password").build());
+        upVote(questionId, kept);
+        upVote(questionId, removed);
+        assertEquals(0, score());
+
+        userRepository.delete(removed);
+        voteWriteBehindBuffer.flush();
+        assertEquals(1, score());
+    }
+
+    private void upVote(Integer questionId, User voter) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(voter, null, List.of()));
+        try {
+            questionService.upVote(questionId);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private int score() {
+        return titleSuggestions.suggest("Flushed ranking", 1).get(0).getScore();
+    }
+}